@@ -0,0 +1,456 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import jmt.gui.common.CommonConstants;
+import jmt.gui.common.definitions.CommonModel;
+import jmt.gui.common.distributions.Exponential;
+
+/**
+ * DAG Converter
+ * 
+ * Builds the JMT model of a DAG from its JSON representation. Each
+ * conversion runs on its own converter instance, so any number of
+ * conversions can run concurrently in the same JVM
+ * 
+ * The DAG may have any number of roots and leaves, with fan-out and fan-in.
+ * Every node is a set of parallel queues. The roots are fed by Fork 1 and
+ * every other node by its own scaler, which joins the tasks of all of its
+ * predecessors. A node with several successors feeds them through an
+ * additional fork, and the leaves are joined by Join 1. For a single chain
+ * this is the same model as before
+ * 
+ * The JSON is read as a stream of tokens: nodes and connections go straight
+ * into primitive arrays and the document tree is never built
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+public class DagConverter {
+
+	private final CommonModel model = new CommonModel();
+	private final Map<String, Integer> index = new HashMap<String, Integer>();
+	private String[] names = new String[16];
+	private boolean[] declared = new boolean[16];
+	private int[] paralellism_level = new int[16];
+	private int[] input_degree = new int[16];
+	private int nodes;
+	private int[] edgeSource = new int[16];
+	private int[] edgeTarget = new int[16];
+	private int edges;
+
+	private int[] successorStart;
+	private int[] successors;
+	private int[] predecessorCount;
+	private int[] sequence;
+
+	private Object[][] queues;
+	private Object[] scalers;
+	private Object[] forks;
+	private Object fork;
+	private Object join;
+	private Object src;
+	private Object sink;
+
+	private DagConverter() {
+	}
+
+	/**
+	 * Reads a DAG in JSON format and returns its model. The stream is not
+	 * closed.
+	 */
+	public static CommonModel convert(InputStream in) throws IOException, ParseException {
+		return convert(in, Metrics.NONE);
+	}
+
+	/**
+	 * Reads a DAG in JSON format and returns its model, recording the cost of
+	 * each phase in the metrics. The stream is not closed.
+	 */
+	public static CommonModel convert(InputStream in, Metrics metrics) throws IOException, ParseException {
+		metrics.begin("parse");
+		DagConverter converter = parse(in);
+		metrics.begin("build");
+		converter.build();
+		metrics.begin("connect");
+		converter.connect();
+		metrics.end();
+		return converter.model;
+	}
+
+	/**
+	 * Reads the DAG, the first phase of a conversion. The phases are also
+	 * run one by one by the benchmarks.
+	 */
+	static DagConverter parse(InputStream in) throws IOException, ParseException {
+		DagConverter converter = new DagConverter();
+		converter.readDAG(in);
+		return converter;
+	}
+
+	/**
+	 * Orders the nodes and adds the stations and the class to the model.
+	 */
+	void build() {
+		sortTopologically();
+		generateQueues();
+		generateForksandJoins();
+		generateSourceAndSink();
+	}
+
+	/**
+	 * Connects the stations.
+	 */
+	void connect() {
+		generateConnections();
+	}
+
+	CommonModel getModel() {
+		return model;
+	}
+
+	private void readDAG(InputStream in) throws IOException, ParseException {
+		JSONParser jsonParser = new JSONParser();
+		jsonParser.parse(new InputStreamReader(in, "UTF-8"), new DagHandler());
+		for (int i = 0; i < nodes; i++) {
+			if (!declared[i]) {
+				throw new IllegalArgumentException("A connection refers to the unknown node " + names[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of a node, reserving one for a node that has not
+	 * been declared yet so that connections may come before the nodes.
+	 */
+	private int nodeIndex(String name) {
+		Integer i = index.get(name);
+		if (i != null) {
+			return i.intValue();
+		}
+		if (nodes == names.length) {
+			names = Arrays.copyOf(names, nodes * 2);
+			declared = Arrays.copyOf(declared, nodes * 2);
+			paralellism_level = Arrays.copyOf(paralellism_level, nodes * 2);
+			input_degree = Arrays.copyOf(input_degree, nodes * 2);
+		}
+		index.put(name, Integer.valueOf(nodes));
+		names[nodes] = name;
+		return nodes++;
+	}
+
+	private void addNode(String name, int parallelism, int degree) {
+		int i = nodeIndex(name);
+		if (declared[i]) {
+			throw new IllegalArgumentException("Duplicate node " + name);
+		}
+		declared[i] = true;
+		paralellism_level[i] = parallelism;
+		input_degree[i] = degree;
+	}
+
+	private void addEdge(String source, String target) {
+		int s = nodeIndex(source);
+		int t = nodeIndex(target);
+		if (edges == edgeSource.length) {
+			edgeSource = Arrays.copyOf(edgeSource, edges * 2);
+			edgeTarget = Arrays.copyOf(edgeTarget, edges * 2);
+		}
+		edgeSource[edges] = s;
+		edgeTarget[edges] = t;
+		edges++;
+	}
+
+	/**
+	 * Receives the tokens of the DAG document. Only the members of the
+	 * objects in the top-level Nodes and Connections arrays are kept; any
+	 * other content is skipped.
+	 */
+	private class DagHandler implements ContentHandler {
+
+		private int objectDepth;
+		private int arrayDepth;
+		private String section;
+		private String field;
+
+		private String name;
+		private String source;
+		private String target;
+		private int parallelism;
+		private int degree;
+
+		public void startJSON() {
+		}
+
+		public void endJSON() {
+		}
+
+		public boolean startObject() {
+			objectDepth++;
+			if (objectDepth == 2 && arrayDepth == 1) {
+				name = null;
+				source = null;
+				target = null;
+				parallelism = -1;
+				degree = -1;
+			}
+			return true;
+		}
+
+		public boolean endObject() {
+			if (objectDepth == 2 && arrayDepth == 1) {
+				if ("Nodes".equals(section)) {
+					if (name == null || parallelism < 0 || degree < 0) {
+						throw new IllegalArgumentException("Node " + name + " needs name, paralellism_level and input_degree");
+					}
+					addNode(name, parallelism, degree);
+				} else if ("Connections".equals(section)) {
+					if (source == null || target == null) {
+						throw new IllegalArgumentException("Connections need source and target");
+					}
+					addEdge(source, target);
+				}
+			}
+			objectDepth--;
+			return true;
+		}
+
+		public boolean startObjectEntry(String key) {
+			if (objectDepth == 1 && arrayDepth == 0) {
+				section = key;
+			} else if (objectDepth == 2 && arrayDepth == 1) {
+				field = key;
+			}
+			return true;
+		}
+
+		public boolean endObjectEntry() {
+			if (objectDepth == 2) {
+				field = null;
+			}
+			return true;
+		}
+
+		public boolean startArray() {
+			arrayDepth++;
+			return true;
+		}
+
+		public boolean endArray() {
+			arrayDepth--;
+			return true;
+		}
+
+		public boolean primitive(Object value) {
+			if (objectDepth != 2 || arrayDepth != 1 || field == null || value == null) {
+				return true;
+			}
+			if ("name".equals(field)) {
+				name = value.toString();
+			} else if ("source".equals(field)) {
+				source = value.toString();
+			} else if ("target".equals(field)) {
+				target = value.toString();
+			} else if ("paralellism_level".equals(field)) {
+				parallelism = toInt(value);
+			} else if ("input_degree".equals(field)) {
+				degree = toInt(value);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Builds the adjacency lists and orders the nodes with Kahn's algorithm
+	 * in O(V+E). Roots are taken in the order they are declared, so a chain
+	 * is ordered from its start to its end.
+	 */
+	private void sortTopologically() {
+		successorStart = new int[nodes + 1];
+		predecessorCount = new int[nodes];
+		for (int e = 0; e < edges; e++) {
+			successorStart[edgeSource[e] + 1]++;
+			predecessorCount[edgeTarget[e]]++;
+		}
+		for (int i = 0; i < nodes; i++) {
+			successorStart[i + 1] += successorStart[i];
+		}
+		successors = new int[edges];
+		int[] fill = Arrays.copyOf(successorStart, nodes);
+		for (int e = 0; e < edges; e++) {
+			successors[fill[edgeSource[e]]++] = edgeTarget[e];
+		}
+
+		sequence = new int[nodes];
+		int[] remaining = Arrays.copyOf(predecessorCount, nodes);
+		int head = 0;
+		int tail = 0;
+		for (int i = 0; i < nodes; i++) {
+			if (remaining[i] == 0) {
+				sequence[tail++] = i;
+			}
+		}
+		while (head < tail) {
+			int node = sequence[head++];
+			for (int k = successorStart[node]; k < successorStart[node + 1]; k++) {
+				if (--remaining[successors[k]] == 0) {
+					sequence[tail++] = successors[k];
+				}
+			}
+		}
+		if (tail < nodes) {
+			throw new IllegalArgumentException("The graph is not acyclic");
+		}
+		if (nodes == 0) {
+			throw new IllegalArgumentException("The graph has no nodes");
+		}
+	}
+
+	private int roots() {
+		int count = 0;
+		for (int i = 0; i < nodes; i++) {
+			if (predecessorCount[i] == 0) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private int outDegree(int node) {
+		return successorStart[node + 1] - successorStart[node];
+	}
+
+	private void generateQueues() {
+		queues = new Object[nodes][];
+		for (int i = 0; i < sequence.length; i++) {
+			DagStageEvent event = new DagStageEvent();
+			event.begin();
+			int node = sequence[i];
+			queues[node] = new Object[paralellism_level[node]];
+			for (int j = 0; j < paralellism_level[node]; j++) {
+				queues[node][j] = model.addStation("Queue " + (i + 1) + "_" + (j + 1), CommonConstants.STATION_TYPE_SERVER);
+			}
+			commit(event, "build", i);
+		}
+	}
+
+	private void generateForksandJoins() {
+		boolean singleRoot = roots() == 1;
+		fork = model.addStation("Fork 1", CommonConstants.STATION_TYPE_FORK);
+		model.setStationNumberOfServers(fork, Integer.valueOf(singleRoot ? input_degree[sequence[0]] : 1));
+		join = model.addStation("Join 1", CommonConstants.STATION_TYPE_JOIN);
+
+		scalers = new Object[nodes];
+		int scaler = 1;
+		for (int i = 0; i < sequence.length; i++) {
+			int node = sequence[i];
+			if (predecessorCount[node] > 0 || !singleRoot) {
+				scalers[node] = model.addStation("Scaler " + scaler++, CommonConstants.STATION_TYPE_SCALER);
+				model.setStationNumberOfServers(scalers[node], Integer.valueOf(input_degree[node]));
+			}
+		}
+
+		forks = new Object[nodes];
+		int forkNumber = 2;
+		for (int i = 0; i < sequence.length; i++) {
+			int node = sequence[i];
+			if (outDegree(node) > 1) {
+				forks[node] = model.addStation("Fork " + forkNumber++, CommonConstants.STATION_TYPE_FORK);
+				model.setStationNumberOfServers(forks[node], Integer.valueOf(1));
+			}
+		}
+	}
+
+	private void generateSourceAndSink() {
+		Exponential exp = new Exponential();
+		Object cls = model.addClass("Class1", CommonConstants.CLASS_TYPE_OPEN, 0, 0, exp);
+		src = model.addStation("Source 1", CommonConstants.STATION_TYPE_SOURCE);
+		sink = model.addStation("Sink 1", CommonConstants.STATION_TYPE_SINK);
+		model.setClassRefStation(cls, src);
+	}
+
+	private void generateConnections() {
+		model.setConnected(src, fork, true);
+		for (int i = 0; i < sequence.length; i++) {
+			DagStageEvent event = new DagStageEvent();
+			event.begin();
+			int node = sequence[i];
+			Object in = (scalers[node] != null) ? scalers[node] : fork;
+			Object out;
+			if (outDegree(node) == 0) {
+				out = join;
+			} else if (outDegree(node) == 1) {
+				out = scalers[successors[successorStart[node]]];
+			} else {
+				out = forks[node];
+			}
+
+			if (predecessorCount[node] == 0 && scalers[node] != null) {
+				model.setConnected(fork, scalers[node], true);
+			}
+			for (int j = 0; j < queues[node].length; j++) {
+				model.setConnected(in, queues[node][j], true);
+				model.setConnected(queues[node][j], out, true);
+			}
+			if (forks[node] != null) {
+				for (int k = successorStart[node]; k < successorStart[node + 1]; k++) {
+					model.setConnected(forks[node], scalers[successors[k]], true);
+				}
+			}
+			commit(event, "connect", i);
+		}
+		model.setConnected(join, sink, true);
+	}
+
+	/**
+	 * Commits the flight recorder event of the stage at the given position
+	 * of the topological order, if it is being recorded.
+	 */
+	private void commit(DagStageEvent event, String phase, int position) {
+		if (event.shouldCommit()) {
+			int node = sequence[position];
+			event.phase = phase;
+			event.stage = names[node];
+			event.position = position + 1;
+			event.parallelism = paralellism_level[node];
+			event.inputDegree = input_degree[node];
+			event.predecessors = predecessorCount[node];
+			event.successors = outDegree(node);
+			event.commit();
+		}
+	}
+
+	private static int toInt(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).intValue();
+		}
+		return Integer.parseInt(((String) value).trim());
+	}
+
+}
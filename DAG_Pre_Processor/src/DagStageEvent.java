@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * DAG Stage Event
+ *
+ * JDK Flight Recorder event for a stage (node) of a DAG, once when its
+ * queues are added to the model and once when they are connected, with
+ * the name and topological position of the stage, its parallelism and
+ * input degree and the number of its predecessors and successors
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+@Name("dice.preprocessor.DagStage")
+@Label("DAG Stage")
+@Category({ "DICE", "Pre-Processors", "DAG" })
+@Description("Queues of a stage of a DAG added to the model or connected")
+final class DagStageEvent extends jdk.jfr.Event {
+
+	@Label("Phase")
+	String phase;
+
+	@Label("Stage")
+	String stage;
+
+	@Label("Position")
+	int position;
+
+	@Label("Parallelism")
+	int parallelism;
+
+	@Label("Input Degree")
+	int inputDegree;
+
+	@Label("Predecessors")
+	int predecessors;
+
+	@Label("Successors")
+	int successors;
+
+}
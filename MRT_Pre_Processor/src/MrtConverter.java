@@ -0,0 +1,455 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jmt.gui.common.definitions.CommonModel;
+import jmt.gui.common.CommonConstants;
+import jmt.gui.common.xml.XMLReader;
+
+/**
+ * MRT Converter
+ * 
+ * Builds the JMT model of an XML file containing MRTs. Each conversion
+ * runs on its own converter instance, so any number of conversions can
+ * run concurrently in the same JVM
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+public class MrtConverter {
+
+	private final CommonModel model = new CommonModel();
+	private final ArrayList<Template> templates = new ArrayList<Template>();
+	private final Map<String, Integer> index = new HashMap<String, Integer>();
+	private Element sim;
+	private Object[][] forks;
+	private Object[][] joins;
+
+	private static class Template {
+
+		public String name;
+		public String input;
+		public String output;
+		public int map = -1;
+		public int red = -1;
+		public int mapper = -1;
+		public int reducer = -1;
+		public Map<String, Integer> thresholds = new LinkedHashMap<String, Integer>();
+
+		public Template(String name) {
+			this.name = name;
+		}
+
+		public Template(Template other) {
+			this.name = other.name;
+			this.input = other.input;
+			this.output = other.output;
+			this.map = other.map;
+			this.red = other.red;
+			this.mapper = other.mapper;
+			this.reducer = other.reducer;
+			this.thresholds.putAll(other.thresholds);
+		}
+
+	}
+
+	private MrtConverter() {
+	}
+
+	/**
+	 * Reads an XML file containing MRTs and returns the model with the MRTs.
+	 * The stream is not closed.
+	 */
+	public static CommonModel convert(InputStream in) throws ParserConfigurationException, XMLStreamException {
+		return convert(in, Metrics.NONE);
+	}
+
+	/**
+	 * Reads an XML file containing MRTs and returns the model with the MRTs,
+	 * recording the cost of each phase in the metrics. The stream is not
+	 * closed.
+	 */
+	public static CommonModel convert(InputStream in, Metrics metrics)
+			throws ParserConfigurationException, XMLStreamException {
+		metrics.begin("parse");
+		MrtConverter converter = parse(in);
+		metrics.begin("build");
+		converter.buildMRT();
+		metrics.begin("connect");
+		converter.connectMRT();
+		metrics.end();
+		return converter.model;
+	}
+
+	/**
+	 * Reads the file, the first phase of a conversion. The phases are also
+	 * run one by one by the benchmarks.
+	 */
+	static MrtConverter parse(InputStream in) throws ParserConfigurationException, XMLStreamException {
+		MrtConverter converter = new MrtConverter();
+		converter.readMRT(in);
+		return converter;
+	}
+
+	CommonModel getModel() {
+		return model;
+	}
+
+	/**
+	 * Reads the file in a single forward pass. Only the sim element is
+	 * materialised, as a DOM subtree handed to XMLReader; each
+	 * template_mapreduce is reduced to a Template as it is read.
+	 */
+	private void readMRT(InputStream stream) throws ParserConfigurationException, XMLStreamException {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		XMLStreamReader reader = factory.createXMLStreamReader(stream);
+		try {
+			boolean hasSim = false;
+			while (reader.hasNext()) {
+				if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+					if (!hasSim && reader.getLocalName().equals("sim")) {
+						Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+						sim = readElement(reader, doc);
+						XMLReader.parseXML(sim, model);
+						hasSim = true;
+					} else if (reader.getLocalName().equals("template_mapreduce")) {
+						templates.add(readTemplate(reader));
+					}
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Returns a new converter for a variant of the file read by this one,
+	 * with the given parameters of the templates changed. Its model is
+	 * loaded from a private copy of the sim element, so the file is not read
+	 * again and any number of variants can be made concurrently. A parameter
+	 * is named map, red, mapper, reducer or semaphore.[class name], and
+	 * applies to every template unless it is followed by the name or the
+	 * position of a template in brackets, e.g. mapper[MapReduce 1] or
+	 * semaphore.Class1[2].
+	 */
+	MrtConverter createVariant(Map<String, Integer> parameters) throws ParserConfigurationException {
+		MrtConverter variant = new MrtConverter();
+		if (sim != null) {
+			Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			Element copy;
+			synchronized (sim) {
+				copy = (Element) doc.importNode(sim, true);
+			}
+			doc.appendChild(copy);
+			XMLReader.parseXML(copy, variant.model);
+		}
+		for (Template template : templates) {
+			variant.templates.add(new Template(template));
+		}
+		for (Map.Entry<String, Integer> parameter : parameters.entrySet()) {
+			variant.setParameter(parameter.getKey(), parameter.getValue().intValue());
+		}
+		return variant;
+	}
+
+	/**
+	 * Checks that each parameter names a parameter of a template that this
+	 * converter has read.
+	 */
+	void checkParameters(Collection<String> names) {
+		for (String name : names) {
+			selectTemplates(name);
+		}
+	}
+
+	private void setParameter(String name, int value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Parameter " + name + " must not be negative: " + value);
+		}
+		String parameter = getParameterName(name);
+		for (Template template : selectTemplates(name)) {
+			if (parameter.equals("map")) {
+				template.map = value;
+			} else if (parameter.equals("red")) {
+				template.red = value;
+			} else if (parameter.equals("mapper")) {
+				template.mapper = value;
+			} else if (parameter.equals("reducer")) {
+				template.reducer = value;
+			} else {
+				template.thresholds.put(parameter.substring("semaphore.".length()), Integer.valueOf(value));
+			}
+		}
+	}
+
+	private static String getParameterName(String name) {
+		int bracket = name.indexOf('[');
+		return (bracket >= 0) ? name.substring(0, bracket).trim() : name.trim();
+	}
+
+	/**
+	 * Returns the templates a parameter applies to.
+	 */
+	private List<Template> selectTemplates(String name) {
+		String parameter = getParameterName(name);
+		if (!parameter.equals("map") && !parameter.equals("red") && !parameter.equals("mapper")
+				&& !parameter.equals("reducer")
+				&& !(parameter.startsWith("semaphore.") && parameter.length() > "semaphore.".length())) {
+			throw new IllegalArgumentException("Unknown parameter " + name);
+		}
+		int bracket = name.indexOf('[');
+		if (bracket < 0) {
+			return templates;
+		}
+		if (!name.endsWith("]")) {
+			throw new IllegalArgumentException("Missing ] in parameter " + name);
+		}
+		String selector = name.substring(bracket + 1, name.length() - 1).trim();
+		List<Template> selected = new ArrayList<Template>();
+		for (Template template : templates) {
+			if (selector.equals(template.name)) {
+				selected.add(template);
+			}
+		}
+		if (selected.isEmpty()) {
+			try {
+				int position = Integer.parseInt(selector);
+				if (position >= 1 && position <= templates.size()) {
+					selected.add(templates.get(position - 1));
+				}
+			} catch (NumberFormatException e) {
+				// not a position either
+			}
+		}
+		if (selected.isEmpty()) {
+			throw new IllegalArgumentException("No template " + selector + " for parameter " + name);
+		}
+		return selected;
+	}
+
+	private static Template readTemplate(XMLStreamReader reader) throws XMLStreamException {
+		Template template = new Template(reader.getAttributeValue(null, "name"));
+		boolean hasInput = false;
+		boolean hasOutput = false;
+		boolean inFork = false;
+		boolean inSemaphore = false;
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+				if (reader.getLocalName().equals("fork")) {
+					inFork = false;
+				} else if (reader.getLocalName().equals("semaphore")) {
+					inSemaphore = false;
+				}
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				String tag = reader.getLocalName();
+				if (tag.equals("input") && !hasInput) {
+					template.input = reader.getAttributeValue(null, "name");
+					hasInput = true;
+				} else if (tag.equals("output") && !hasOutput) {
+					template.output = reader.getAttributeValue(null, "name");
+					hasOutput = true;
+				} else if (tag.equals("fork")) {
+					inFork = true;
+				} else if (tag.equals("semaphore")) {
+					inSemaphore = true;
+				}
+
+				if (inFork && tag.equals("map") && template.map < 0) {
+					template.map = parseInt(reader.getElementText());
+				} else if (inFork && tag.equals("red") && template.red < 0) {
+					template.red = parseInt(reader.getElementText());
+				} else if (tag.equals("mapper") && template.mapper < 0) {
+					template.mapper = parseInt(reader.getElementText());
+				} else if (tag.equals("reducer") && template.reducer < 0) {
+					template.reducer = parseInt(reader.getElementText());
+				} else if (inSemaphore && tag.equals("class") && reader.getAttributeValue(null, "name") != null) {
+					String className = reader.getAttributeValue(null, "name");
+					template.thresholds.put(className, Integer.valueOf(parseInt(reader.getElementText())));
+				} else {
+					depth++;
+				}
+			}
+		}
+
+		if (template.map < 0 || template.red < 0 || template.mapper < 0 || template.reducer < 0) {
+			throw new XMLStreamException("template_mapreduce " + template.name
+					+ " must define fork/map, fork/red, mapper and reducer", reader.getLocation());
+		}
+		return template;
+	}
+
+	/**
+	 * Copies the element the reader is positioned on, with all of its
+	 * descendants, into the given document and leaves the reader on its end
+	 * tag.
+	 */
+	private static Element readElement(XMLStreamReader reader, Document doc) throws XMLStreamException {
+		Element root = createElement(reader, doc);
+		doc.appendChild(root);
+		Node current = root;
+		while (current != null) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				Element elem = createElement(reader, doc);
+				current.appendChild(elem);
+				current = elem;
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				current = (current == root) ? null : current.getParentNode();
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA
+					|| event == XMLStreamConstants.SPACE) {
+				current.appendChild(doc.createTextNode(reader.getText()));
+			}
+		}
+		return root;
+	}
+
+	private static Element createElement(XMLStreamReader reader, Document doc) {
+		Element elem = doc.createElement(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			elem.setAttribute(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)),
+					reader.getAttributeValue(i));
+		}
+		return elem;
+	}
+
+	private static String qualifiedName(String prefix, String localName) {
+		return (prefix == null || prefix.length() == 0) ? localName : prefix + ":" + localName;
+	}
+
+	private static int parseInt(String text) {
+		return Integer.parseInt(text.trim());
+	}
+
+	/**
+	 * Adds the stations of each template and connects them within the
+	 * template.
+	 */
+	void buildMRT() {
+		int size = templates.size();
+		forks = new Object[size][2];
+		Object[] semaphores = new Object[size];
+		joins = new Object[size][2];
+		for (int i = 0; i < size; i++) {
+			MrtTemplateEvent event = new MrtTemplateEvent();
+			event.begin();
+			Template template = templates.get(i);
+			if (template.name != null && !index.containsKey(template.name)) {
+				index.put(template.name, Integer.valueOf(i));
+			}
+			int mapper = template.mapper;
+			int reducer = template.reducer;
+			Object[] queues = new Object[mapper + reducer];
+
+			forks[i][0] = model.addStation("Fork " + (i + 1) + "_1", CommonConstants.STATION_TYPE_FORK);
+			forks[i][1] = model.addStation("Fork " + (i + 1) + "_2", CommonConstants.STATION_TYPE_FORK);
+			for (int j = 0; j < mapper + reducer; j++) {
+				queues[j] = model.addStation("Queue " + (i + 1) + "_" + (j + 1), CommonConstants.STATION_TYPE_SERVER);
+			}
+			semaphores[i] = model.addStation("Semaphore " + (i + 1), CommonConstants.STATION_TYPE_SEMAPHORE);
+			joins[i][0] = model.addStation("Join " + (i + 1) + "_1", CommonConstants.STATION_TYPE_JOIN);
+			joins[i][1] = model.addStation("Join " + (i + 1) + "_2", CommonConstants.STATION_TYPE_JOIN);
+
+			for (int j = 0; j < mapper + reducer; j++) {
+				if (j < mapper) {
+					model.setConnected(forks[i][0], queues[j], true);
+					model.setConnected(queues[j], semaphores[i], true);
+				} else {
+					model.setConnected(forks[i][1], queues[j], true);
+					model.setConnected(queues[j], joins[i][1], true);
+				}
+			}
+			model.setConnected(semaphores[i], joins[i][0], true);
+			model.setConnected(joins[i][0], forks[i][1], true);
+
+			model.setStationNumberOfServers(forks[i][0], Integer.valueOf(template.map));
+			model.setStationNumberOfServers(forks[i][1], Integer.valueOf(template.red));
+			int thresholds = 0;
+			for (Map.Entry<String, Integer> threshold : template.thresholds.entrySet()) {
+				Object classKey = model.getClassByName(threshold.getKey());
+				if (classKey != null && threshold.getValue().intValue() > 0) {
+					model.setSemaphoreThreshold(semaphores[i], classKey, threshold.getValue());
+					thresholds++;
+				}
+			}
+
+			if (event.shouldCommit()) {
+				event.name = template.name;
+				event.position = i + 1;
+				event.mappers = mapper;
+				event.reducers = reducer;
+				event.mapTasks = template.map;
+				event.reduceTasks = template.red;
+				event.thresholds = thresholds;
+				event.commit();
+			}
+		}
+	}
+
+	/**
+	 * Connects each template to its input and output, which are either
+	 * stations of the sim element or other templates.
+	 */
+	void connectMRT() {
+		for (int i = 0; i < templates.size(); i++) {
+			Template template = templates.get(i);
+			Object in = null;
+			Object out = null;
+
+			if (template.input != null) {
+				if (model.getStationByName(template.input) != null) {
+					in = model.getStationByName(template.input);
+				} else if (index.containsKey(template.input)) {
+					in = joins[index.get(template.input).intValue()][1];
+				}
+			}
+			if (template.output != null) {
+				if (model.getStationByName(template.output) != null) {
+					out = model.getStationByName(template.output);
+				} else if (index.containsKey(template.output)) {
+					out = forks[index.get(template.output).intValue()][0];
+				}
+			}
+
+			model.setConnected(in, forks[i][0], true);
+			model.setConnected(joins[i][1], out, true);
+		}
+	}
+
+}
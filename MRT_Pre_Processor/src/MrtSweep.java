@@ -0,0 +1,287 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jmt.gui.common.definitions.CommonModel;
+
+/**
+ * MRT Sweep
+ *
+ * Converts many variants of the same MRT file, each with some parameters
+ * of the templates changed. The file is read once, and the variants are
+ * built, connected and written in parallel, each on its own model loaded
+ * from the sim element already read
+ *
+ * Each line of a sweep file holds parameter assignments separated by ";",
+ * e.g. "mapper = 2; reducer[MapReduce 1] = 1..3; semaphore.Class1 = 1,2,4",
+ * and gives one variant for each combination of their values, the first
+ * parameter changing slowest; lines that are empty or start with "#" are
+ * skipped. See MrtConverter.createVariant for the parameter names
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class MrtSweep {
+
+	private static final String ENCODING = "UTF-8";
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	private static ExecutorService pool;
+
+	private MrtSweep() {
+	}
+
+	/**
+	 * Returns true if all the given parameters are semaphore thresholds,
+	 * and there is at least one.
+	 */
+	private static boolean isOnlySemaphores(Set<String> names) {
+		for (String name : names) {
+			if (!name.startsWith("semaphore.")) {
+				return false;
+			}
+		}
+		return !names.isEmpty();
+	}
+
+	/**
+	 * Converts the input file once for each variant of the sweep file. The
+	 * variants are written next to the output file, numbered from 1, e.g.
+	 * model-1.jsimg, model-2.jsimg, ... for model.jsimg, and the files are
+	 * returned in the order of the variants. If asked, the analytic estimate
+	 * of each variant is written next to it, e.g. model-1.estimate.json.
+	 */
+	static List<File> convert(File input, File sweep, File output, Metrics metrics, final boolean estimate)
+			throws ParserConfigurationException, XMLStreamException, IOException, InterruptedException {
+		metrics.setAttribute("input", input.getPath());
+		metrics.setAttribute("sweep", sweep.getPath());
+		metrics.setAttribute("output", output.getPath());
+		metrics.begin("parse");
+		final List<Map<String, Integer>> variants = readSweep(sweep);
+		final MrtConverter base;
+		InputStream in = Compression.openInput(input);
+		try {
+			base = MrtConverter.parse(in);
+		} finally {
+			in.close();
+		}
+		Set<String> names = new LinkedHashSet<String>();
+		for (Map<String, Integer> variant : variants) {
+			names.addAll(variant.keySet());
+		}
+		base.checkParameters(names);
+		if (estimate && isOnlySemaphores(names)) {
+			System.err.println("MRT: the sweep only changes semaphore thresholds, which leave the estimates of the"
+					+ " variants the same, as the join of the map phase waits for all the map tasks anyway");
+		}
+		metrics.setAttribute("variants", String.valueOf(variants.size()));
+
+		final List<File> files = new ArrayList<File>(variants.size());
+		for (int i = 0; i < variants.size(); i++) {
+			files.add(JsimgWriter.getNumberedFile(output, i + 1));
+		}
+
+		metrics.begin("variants");
+		final AtomicInteger next = new AtomicInteger();
+		final IOException[] failure = new IOException[1];
+		int workers = Math.min(THREADS, variants.size());
+		final CountDownLatch done = new CountDownLatch(workers);
+		for (int t = 0; t < workers; t++) {
+			getPool().execute(new Runnable() {
+				public void run() {
+					int i;
+					while ((i = next.getAndIncrement()) < variants.size()) {
+						try {
+							MrtConverter variant = base.createVariant(variants.get(i));
+							variant.buildMRT();
+							variant.connectMRT();
+							CommonModel model = variant.getModel();
+							JsimgWriter.write(files.get(i), model);
+							if (estimate) {
+								ModelEstimator.estimate(model).write(ModelEstimator.getEstimateFile(files.get(i)));
+							}
+						} catch (Throwable e) {
+							synchronized (failure) {
+								if (failure[0] == null) {
+									failure[0] = new IOException("Variant " + (i + 1) + " " + variants.get(i)
+											+ " failed: " + e.getMessage(), e);
+								}
+							}
+							// the other workers stop at their next variant
+							next.set(variants.size());
+						}
+					}
+					done.countDown();
+				}
+			});
+		}
+		done.await();
+		metrics.end();
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		return files;
+	}
+
+	/**
+	 * Returns the pool the variants are converted on. Its threads are kept,
+	 * so that the allocations of a sweep are still counted by the metrics
+	 * when it ends.
+	 */
+	private static synchronized ExecutorService getPool() {
+		if (pool == null) {
+			pool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "mrt-sweep");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return pool;
+	}
+
+	/**
+	 * Reads the variants of a sweep file, each as the values of its
+	 * parameters.
+	 */
+	static List<Map<String, Integer>> readSweep(File file) throws IOException {
+		List<Map<String, Integer>> variants = new ArrayList<Map<String, Integer>>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+		try {
+			int number = 0;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				number++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				try {
+					expand(readLine(line), variants);
+				} catch (IllegalArgumentException e) {
+					throw new IOException("Line " + number + " of " + file + ": " + e.getMessage());
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		if (variants.isEmpty()) {
+			throw new IOException("No variants in " + file);
+		}
+		return variants;
+	}
+
+	private static Map<String, List<Integer>> readLine(String line) {
+		Map<String, List<Integer>> values = new LinkedHashMap<String, List<Integer>>();
+		for (String assignment : line.split(";")) {
+			if (assignment.trim().length() == 0) {
+				continue;
+			}
+			int equals = assignment.lastIndexOf('=');
+			if (equals < 0) {
+				throw new IllegalArgumentException("Missing = in " + assignment.trim());
+			}
+			String name = assignment.substring(0, equals).trim();
+			if (name.length() == 0 || values.containsKey(name)) {
+				throw new IllegalArgumentException("Missing or repeated parameter in " + assignment.trim());
+			}
+			values.put(name, readValues(assignment.substring(equals + 1)));
+		}
+		return values;
+	}
+
+	/**
+	 * Reads a list of values separated by ",", each a number or a range of
+	 * numbers such as 1..4.
+	 */
+	private static List<Integer> readValues(String text) {
+		List<Integer> values = new ArrayList<Integer>();
+		for (String item : text.split(",")) {
+			item = item.trim();
+			try {
+				int range = item.indexOf("..");
+				if (range < 0) {
+					values.add(Integer.valueOf(item));
+				} else {
+					int from = Integer.parseInt(item.substring(0, range).trim());
+					int to = Integer.parseInt(item.substring(range + 2).trim());
+					if (from > to) {
+						throw new IllegalArgumentException("Empty range " + item);
+					}
+					for (int value = from; value <= to; value++) {
+						values.add(Integer.valueOf(value));
+					}
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Not a number or range: " + item);
+			}
+		}
+		for (Integer value : values) {
+			if (value.intValue() < 0) {
+				throw new IllegalArgumentException("Negative value in " + text.trim());
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Adds every combination of the values of the parameters to the
+	 * variants, the first parameter changing slowest.
+	 */
+	private static void expand(Map<String, List<Integer>> values, List<Map<String, Integer>> variants) {
+		List<String> names = new ArrayList<String>(values.keySet());
+		int[] positions = new int[names.size()];
+		while (true) {
+			Map<String, Integer> variant = new LinkedHashMap<String, Integer>();
+			for (int i = 0; i < names.size(); i++) {
+				variant.put(names.get(i), values.get(names.get(i)).get(positions[i]));
+			}
+			variants.add(variant);
+			int i = names.size() - 1;
+			while (i >= 0 && ++positions[i] == values.get(names.get(i)).size()) {
+				positions[i] = 0;
+				i--;
+			}
+			if (i < 0) {
+				return;
+			}
+		}
+	}
+
+}
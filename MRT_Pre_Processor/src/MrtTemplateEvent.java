@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * MRT Template Event
+ *
+ * JDK Flight Recorder event for the stations of a MapReduce template added
+ * to the model, with the name and position of the template, its mappers,
+ * reducers, map and reduce tasks and the semaphore thresholds set
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+@Name("dice.preprocessor.MrtTemplate")
+@Label("MRT Template")
+@Category({ "DICE", "Pre-Processors", "MRT" })
+@Description("Stations of a MapReduce template added to the model")
+final class MrtTemplateEvent extends jdk.jfr.Event {
+
+	@Label("Name")
+	String name;
+
+	@Label("Position")
+	int position;
+
+	@Label("Mappers")
+	int mappers;
+
+	@Label("Reducers")
+	int reducers;
+
+	@Label("Map Tasks")
+	int mapTasks;
+
+	@Label("Reduce Tasks")
+	int reduceTasks;
+
+	@Label("Thresholds")
+	int thresholds;
+
+}
@@ -0,0 +1,451 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeSet;
+
+/**
+ * Model Generator
+ *
+ * Writes synthetic inputs of any size for the pre-processors: GSPNs and
+ * HadoopCap SWNs in PNML, DAGs in JSON and MRT models in XML. Every value
+ * is drawn from a random generator with a fixed seed, so that the same
+ * arguments always give the same file
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public class ModelGenerator {
+
+	public static final long DEFAULT_SEED = 2017L;
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final String DICE_TOOL = "<toolspecific tool=\"DICE PNML Extensions\" version=\"0.1\">";
+	private static final String U_TSERV_INFINITE = "http://es.unizar.dsico/pnconstants/tserv/infinite";
+	private static final String U_TKIND_EXPONENTIAL = "http://es.unizar.disco/pnconstants/tkind/exponential";
+	private static final String U_TKIND_IMMEDIATE_PRIORITY = "http://es.unizar.disco/pnconstants/tkind/immediatepriority";
+	private static final String U_TKIND_IMMEDIATE = "http://es.unizar.disco/pnconstants/tkind/immediate";
+	private static final String U_AKIND_INHIBITOR = "http://es.unizar.dsico/pnconstants/akind/inhibitor";
+	private static final String U_COLOR_COLORSET = "http://es.unizar.dsico/pnconstants/color/colorset";
+	private static final String U_COLOR_COLOR = "http://es.unizar.dsico/pnconstants/color/color";
+	private static final String U_BASETIMEUNIT = "http://es.unizar.dsico/pnconstants/units/basetimeunit";
+
+	private final Writer out;
+	private final Random random;
+	private int arcs;
+
+	private ModelGenerator(Writer out, long seed) {
+		this.out = out;
+		this.random = new Random(seed);
+	}
+
+	/**
+	 * Writes a synthetic input of the given kind to the file. The size is the
+	 * number of places of a GSPN, of jobs (colours) of a HadoopCap SWN, of
+	 * nodes of a DAG or of templates of an MRT model. The degree is the
+	 * maximum fan-out of a DAG or the number of classes of an MRT model, and
+	 * is not used by the other kinds.
+	 */
+	public static void generate(String kind, int size, int degree, long seed, File file) throws IOException {
+		if (size < 1) {
+			throw new IllegalArgumentException("The size must be positive: " + size);
+		}
+		if ((kind.equals("dag") || kind.equals("mrt")) && degree < 1) {
+			throw new IllegalArgumentException("The degree must be positive: " + degree);
+		}
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), ENCODING));
+		try {
+			ModelGenerator generator = new ModelGenerator(writer, seed);
+			if (kind.equals("gspn")) {
+				generator.writeGSPN(size);
+			} else if (kind.equals("swn-HadoopCap")) {
+				generator.writeHadoopCap(size);
+			} else if (kind.equals("dag")) {
+				generator.writeDAG(size, degree);
+			} else if (kind.equals("mrt")) {
+				generator.writeMRT(size, degree, file.getName().replaceFirst("\\.xml$", ".jsimg"));
+			} else {
+				throw new IllegalArgumentException("Unknown kind: " + kind);
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * A GSPN with a ring of places, each place feeding one transition that
+	 * moves the token to the next place or, now and then, to a place further
+	 * on. Most transitions are exponential, the rest immediate, and a few are
+	 * guarded by an inhibitor arc, so that every parameter the converter
+	 * reads is present.
+	 */
+	private void writeGSPN(int places) throws IOException {
+		writePNMLStartTag("GSPN");
+
+		int tokens = 0;
+		for (int i = 0; i < places; i++) {
+			int marking = (i == 0 || random.nextInt(10) == 0) ? 1 + random.nextInt(3) : 0;
+			tokens += marking;
+			writePlace("p" + i, "P" + i, marking, null);
+		}
+
+		for (int i = 0; i < places; i++) {
+			out.write("<transition id=\"t" + i + "\">\n");
+			writeName("T" + i);
+			if (random.nextInt(5) > 0) {
+				writeSpecific(U_TKIND_EXPONENTIAL, rate(0.1, 10.0));
+				if (random.nextBoolean()) {
+					writeSpecific(U_TSERV_INFINITE, null);
+				}
+			} else {
+				writeSpecific(U_TKIND_IMMEDIATE_PRIORITY, String.valueOf(1 + random.nextInt(3)));
+				writeSpecific(U_TKIND_IMMEDIATE, rate(0.5, 2.0));
+			}
+			out.write("</transition>\n");
+		}
+
+		for (int i = 0; i < places; i++) {
+			int next = (i + 1) % places;
+			if (random.nextInt(10) < 3) {
+				next = (i + 1 + random.nextInt(Math.min(places, 100))) % places;
+			}
+			writeArc("p" + i, "t" + i, 1, false, null);
+			writeArc("t" + i, "p" + next, 1, false, null);
+			int guard = random.nextInt(places);
+			if (guard != i && random.nextInt(20) == 0) {
+				writeArc("p" + guard, "t" + i, Math.max(1, tokens / 2), true, null);
+			}
+		}
+
+		writePNMLEndTag("GSPN", null);
+	}
+
+	/**
+	 * A HadoopCap SWN with one colour per job. Each job thinks, runs its map
+	 * tasks and then its reduce tasks, acquiring and releasing the shared
+	 * resources around each phase. The jobs are drawn from a quarter as many
+	 * profiles, so that the swn-HadoopCap-approx mode has resource colours to
+	 * merge.
+	 */
+	private void writeHadoopCap(int jobs) throws IOException {
+		int profiles = Math.max(1, (jobs + 3) / 4);
+		int[][] counts = new int[profiles][];
+		String[][] rates = new String[profiles][];
+		for (int p = 0; p < profiles; p++) {
+			counts[p] = new int[] { 1 + random.nextInt(5), 1 + random.nextInt(20), 1 + random.nextInt(10),
+					1 + random.nextInt(10) };
+			rates[p] = new String[] { rate(0.01, 0.1), rate(0.5, 5.0), rate(0.5, 5.0) };
+		}
+		int[] profile = new int[jobs];
+		for (int i = 0; i < jobs; i++) {
+			profile[i] = random.nextInt(profiles);
+		}
+
+		String start = "app_start";
+		String mapping = "app_mapping";
+		String reducing = "app_reducing";
+		String resources = "Resources_app_start";
+		int resourceTokens = 0;
+		for (int i = 0; i < jobs; i++) {
+			resourceTokens += counts[profile[i]][3];
+		}
+
+		writePNMLStartTag("HadoopCap");
+		writePlace("res", start + "_Res", resourceTokens, null);
+		for (int i = 0; i < jobs; i++) {
+			int[] c = counts[profile[i]];
+			String[] r = rates[profile[i]];
+			String j = "j" + i + "_";
+			String[] colour = { String.valueOf(i), start, "0" };
+
+			writePlace(j + "start", start + "_" + start + "_" + i, c[0],
+					new String[] { String.valueOf(i), start, String.valueOf(c[0]) });
+			writePlace(j + "gen", start + "_Gen_" + start + "_" + i, 0, colour);
+			writeTransition(j + "think", start + "_trans_" + start + "_" + i, colour, r[0]);
+			writeArc(j + "start", j + "think", 1, false, colour);
+			writeArc(j + "think", j + "gen", 1, false, colour);
+
+			writePhase(j + "map", mapping, start, i, c[1], colour, r[1], j + "gen");
+			writePhase(j + "red", reducing, start, i, c[2], colour, r[2], j + "mapEnd");
+
+			writeTransition(j + "end", "end_trans_" + start + "_" + i, colour, null);
+			writeArc(j + "redEnd", j + "end", 1, false, colour);
+			writeArc(j + "end", j + "start", 1, false, colour);
+		}
+
+		List<String> specifics = new ArrayList<String>();
+		for (int i = 0; i < jobs; i++) {
+			specifics.add(colorSet("id_" + i + "_" + start, true));
+			specifics.add(color(0, "id_" + i + "_" + start, counts[profile[i]][0]));
+		}
+		specifics.add(colorSet(start, false));
+		for (int i = 0; i < jobs; i++) {
+			specifics.add(color(i, start, counts[profile[i]][0]));
+		}
+		specifics.add(specific(U_BASETIMEUNIT, "s"));
+		specifics.add(colorSet(reducing, false));
+		for (int i = 0; i < jobs; i++) {
+			specifics.add(color(i, reducing, counts[profile[i]][2]));
+		}
+		specifics.add(colorSet(mapping, false));
+		for (int i = 0; i < jobs; i++) {
+			specifics.add(color(i, mapping, counts[profile[i]][1]));
+		}
+		specifics.add(colorSet(resources, false));
+		for (int i = 0; i < jobs; i++) {
+			specifics.add(color(i, resources, counts[profile[i]][3]));
+		}
+		writePNMLEndTag("MRprocess", specifics);
+	}
+
+	/**
+	 * One phase of a HadoopCap job: the job token in the input place is split
+	 * into its tasks, which wait, acquire a resource, execute and release it,
+	 * and join again in the end place of the phase once all of them are done.
+	 */
+	private void writePhase(String id, String set, String start, int job, int tasks, String[] colour, String rate,
+			String input) throws IOException {
+		String suffix = start + "_" + job;
+		String[] taskColour = { String.valueOf(job), set, "1" };
+		writePlace(id + "Wait", set + "_Wait_" + suffix, 0, colour);
+		writePlace(id + "Exec", set + "_Exec_" + suffix, 0, colour);
+		writePlace(id + "Done", set + "_Done_" + suffix, 0, colour);
+		writePlace(id + "End", set + "_End_" + suffix, 0, colour);
+		writeTransition(id + "Gen", set + "_trans_Gen_" + set + "_" + job, taskColour, null);
+		writeTransition(id + "Res", set + "_trans_Res_" + set + "_" + job, taskColour, null);
+		writeTransition(id + "Trans", set + "_trans_" + set + "_" + job, taskColour, rate);
+		writeTransition(id + "Join", set + "_trans_Join_" + set + "_" + job, taskColour, null);
+
+		writeArc(input, id + "Gen", 1, false, colour);
+		writeArc(id + "Gen", id + "Wait", tasks, false, taskColour);
+		writeArc(id + "Wait", id + "Res", 1, false, taskColour);
+		writeArc("res", id + "Res", 1, false, null);
+		writeArc(id + "Res", id + "Exec", 1, false, taskColour);
+		writeArc(id + "Exec", id + "Trans", 1, false, taskColour);
+		writeArc(id + "Trans", "res", 1, false, null);
+		writeArc(id + "Trans", id + "Done", 1, false, taskColour);
+		writeArc(id + "Done", id + "Join", tasks, false, taskColour);
+		writeArc(id + "Join", id + "End", 1, false, colour);
+	}
+
+	/**
+	 * A DAG whose nodes are connected to up to fan-out later nodes, picked
+	 * among the next few so that the graph is deep as well as wide.
+	 */
+	private void writeDAG(int nodes, int fanout) throws IOException {
+		out.write("{\n  \"Nodes\": [\n");
+		for (int i = 0; i < nodes; i++) {
+			out.write("    {\n      \"name\": \"Bolt " + (i + 1) + "\",\n");
+			out.write("      \"paralellism_level\": \"" + (1 + random.nextInt(4)) + "\",\n");
+			out.write("      \"input_degree\": \"" + (1 + random.nextInt(4)) + "\"\n");
+			out.write((i < nodes - 1) ? "    },\n" : "    }\n");
+		}
+		out.write("  ],\n  \"Connections\": [\n");
+		int window = Math.max(8, 4 * fanout);
+		boolean first = true;
+		for (int i = 0; i < nodes - 1; i++) {
+			int span = Math.min(window, nodes - 1 - i);
+			int successors = Math.min(span, 1 + random.nextInt(fanout));
+			TreeSet<Integer> targets = new TreeSet<Integer>();
+			while (targets.size() < successors) {
+				targets.add(Integer.valueOf(i + 1 + random.nextInt(span)));
+			}
+			for (Integer target : targets) {
+				if (!first) {
+					out.write(",\n");
+				}
+				out.write("    {\n      \"source\": \"Bolt " + (i + 1) + "\",\n      \"target\": \"Bolt "
+						+ (target.intValue() + 1) + "\"\n    }");
+				first = false;
+			}
+		}
+		out.write(first ? "  ]\n}\n" : "\n  ]\n}\n");
+	}
+
+	/**
+	 * An MRT model with a source of open classes feeding a chain of
+	 * MapReduce templates, the last of which feeds a sink.
+	 */
+	private void writeMRT(int templates, int classes, String name) throws IOException {
+		out.write("<?xml version=\"1.0\" encoding=\"" + ENCODING + "\" standalone=\"no\"?>\n");
+		out.write("<archive xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" name=\"" + name
+				+ "\" xsi:noNamespaceSchemaLocation=\"Archive.xsd\">\n");
+		out.write("<sim disableStatisticStop=\"false\" logDecimalSeparator=\".\" logDelimiter=\";\" logPath=\"\""
+				+ " logReplaceMode=\"0\" maxSamples=\"1000000\" name=\"" + name + "\" polling=\"1.0\""
+				+ " xsi:noNamespaceSchemaLocation=\"SIMmodeldefinition.xsd\">\n");
+		for (int k = 1; k <= classes; k++) {
+			out.write("<userClass name=\"Class" + k + "\" priority=\"0\" referenceSource=\"Source 1\" type=\"open\"/>\n");
+		}
+		out.write("<node name=\"Source 1\">\n<section className=\"RandomSource\">\n");
+		out.write("<parameter array=\"true\" classPath=\"jmt.engine.NetStrategies.ServiceStrategy\""
+				+ " name=\"ServiceStrategy\">\n");
+		for (int k = 1; k <= classes; k++) {
+			out.write("<refClass>Class" + k + "</refClass>\n");
+			out.write("<subParameter classPath=\"jmt.engine.NetStrategies.ServiceStrategies.ServiceTimeStrategy\""
+					+ " name=\"ServiceTimeStrategy\">\n");
+			out.write("<subParameter classPath=\"jmt.engine.random.Exponential\" name=\"Exponential\"/>\n");
+			out.write("<subParameter classPath=\"jmt.engine.random.ExponentialPar\" name=\"distrPar\">\n");
+			out.write("<subParameter classPath=\"java.lang.Double\" name=\"lambda\">\n");
+			out.write("<value>" + rate(0.001, 0.01) + "</value>\n");
+			out.write("</subParameter>\n</subParameter>\n</subParameter>\n");
+		}
+		out.write("</parameter>\n</section>\n<section className=\"ServiceTunnel\"/>\n<section className=\"Router\">\n");
+		out.write("<parameter array=\"true\" classPath=\"jmt.engine.NetStrategies.RoutingStrategy\""
+				+ " name=\"RoutingStrategy\">\n");
+		for (int k = 1; k <= classes; k++) {
+			out.write("<refClass>Class" + k + "</refClass>\n");
+			out.write("<subParameter classPath=\"jmt.engine.NetStrategies.RoutingStrategies.RandomStrategy\""
+					+ " name=\"Random\"/>\n");
+		}
+		out.write("</parameter>\n</section>\n</node>\n");
+		out.write("<node name=\"Sink 1\">\n<section className=\"JobSink\"/>\n</node>\n");
+		out.write("</sim>\n");
+
+		for (int i = 1; i <= templates; i++) {
+			int mapper = 1 + random.nextInt(4);
+			out.write("<template_mapreduce name=\"MapReduce " + i + "\">\n");
+			out.write("\t<input name=\"" + ((i == 1) ? "Source 1" : "MapReduce " + (i - 1)) + "\"></input>\n");
+			out.write("\t<fork>\n\t\t<map>" + (1 + random.nextInt(8)) + "</map>\n\t\t<red>" + (1 + random.nextInt(8))
+					+ "</red>\n\t</fork>\n");
+			out.write("\t<mapper>" + mapper + "</mapper>\n\t<semaphore>\n");
+			for (int k = 1; k <= classes; k++) {
+				out.write("\t\t<class name=\"Class" + k + "\">" + (1 + random.nextInt(mapper)) + "</class>\n");
+			}
+			out.write("\t</semaphore>\n\t<reducer>" + (1 + random.nextInt(4)) + "</reducer>\n");
+			out.write("\t<output name=\"" + ((i == templates) ? "Sink 1" : "MapReduce " + (i + 1))
+					+ "\"></output>\n");
+			out.write("</template_mapreduce>\n");
+		}
+		out.write("</archive>\n");
+	}
+
+	private void writePNMLStartTag(String name) throws IOException {
+		out.write("<?xml version=\"1.0\" encoding=\"" + ENCODING + "\"?>\n");
+		out.write("<pnml xmlns=\"http://www.pnml.org/version-2009/grammar/pnml\">\n");
+		out.write("<net id=\"" + name + "_net\" type=\"http://www.pnml.org/version-2009/grammar/ptnet\">\n");
+		out.write("<page id=\"" + name + "_page\">\n");
+	}
+
+	private void writePNMLEndTag(String name, List<String> specifics) throws IOException {
+		out.write("</page>\n");
+		writeName(name);
+		if (specifics != null) {
+			for (String s : specifics) {
+				out.write(s);
+			}
+		}
+		out.write("</net>\n</pnml>\n");
+	}
+
+	private void writeName(String name) throws IOException {
+		out.write("<name>\n  <text>" + name + "</text>\n</name>\n");
+	}
+
+	private void writePlace(String id, String name, int marking, String[] colour) throws IOException {
+		out.write("<place id=\"" + id + "\">\n");
+		writeName(name);
+		if (marking > 0) {
+			out.write("<initialMarking>\n  <text>" + marking + "</text>\n</initialMarking>\n");
+		}
+		if (colour != null) {
+			out.write(color(colour));
+		}
+		out.write("</place>\n");
+	}
+
+	/**
+	 * Writes an exponential transition with infinite servers, or an
+	 * immediate one if the rate is null.
+	 */
+	private void writeTransition(String id, String name, String[] colour, String rate) throws IOException {
+		out.write("<transition id=\"" + id + "\">\n");
+		writeName(name);
+		out.write(color(colour));
+		if (rate != null) {
+			writeSpecific(U_TKIND_EXPONENTIAL, rate);
+			writeSpecific(U_TSERV_INFINITE, null);
+		} else {
+			writeSpecific(U_TKIND_IMMEDIATE_PRIORITY, "1");
+		}
+		out.write("</transition>\n");
+	}
+
+	private void writeArc(String source, String target, int inscription, boolean inhibitor, String[] colour)
+			throws IOException {
+		out.write("<arc id=\"a" + (arcs++) + "\" source=\"" + source + "\" target=\"" + target + "\">\n");
+		if (inscription != 1) {
+			out.write("<inscription>\n  <text>" + inscription + "</text>\n</inscription>\n");
+		}
+		if (inhibitor) {
+			writeSpecific(U_AKIND_INHIBITOR, null);
+		}
+		if (colour != null) {
+			out.write(color(colour));
+		}
+		out.write("</arc>\n");
+	}
+
+	private void writeSpecific(String grammar, String value) throws IOException {
+		out.write(specific(grammar, value));
+	}
+
+	private static String specific(String grammar, String value) {
+		if (value == null) {
+			return DICE_TOOL + "\n<value grammar=\"" + grammar + "\"/></toolspecific>\n";
+		}
+		return DICE_TOOL + "\n<value grammar=\"" + grammar + "\">" + value + "</value></toolspecific>\n";
+	}
+
+	private static String colorSet(String name, boolean isOrdered) {
+		return DICE_TOOL + "\n<value grammar=\"" + U_COLOR_COLORSET + "\">" + name + "</value><value grammar=\""
+				+ U_COLOR_COLORSET + "\">" + (isOrdered ? "1" : "0") + "</value></toolspecific>\n";
+	}
+
+	private static String color(int id, String name, int tokens) {
+		return color(new String[] { String.valueOf(id), name, String.valueOf(tokens) });
+	}
+
+	private static String color(String[] values) {
+		StringBuilder builder = new StringBuilder(DICE_TOOL).append('\n');
+		for (String v : values) {
+			builder.append("<value grammar=\"").append(U_COLOR_COLOR).append("\">").append(v).append("</value>");
+		}
+		return builder.append("</toolspecific>\n").toString();
+	}
+
+	/**
+	 * Returns a rate drawn uniformly between the bounds, rounded to four
+	 * significant digits to keep the files readable.
+	 */
+	private String rate(double min, double max) {
+		double value = min + random.nextDouble() * (max - min);
+		return String.valueOf(Double.parseDouble(String.format(Locale.US, "%.4g", value)));
+	}
+
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.File;
+
+/**
+ * Model Generator
+ *
+ * Receives as input the kind and size of a synthetic model and outputs it
+ * in the input format of the matching pre-processor, for scaling tests
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public class Model_Generator {
+
+	public static void main(String argv[]) {
+		long seed = ModelGenerator.DEFAULT_SEED;
+		int first = 0;
+		if (argv.length >= 2 && argv[0].equals("--seed")) {
+			seed = parseLong(argv[1]);
+			first = 2;
+		}
+		int count = argv.length - first;
+		if (count < 3) {
+			help();
+		}
+
+		String kind = argv[first];
+		int size = parseInt(argv[first + 1]);
+		int degree = 0;
+		File file;
+		if (kind.equals("gspn") || kind.equals("swn-HadoopCap")) {
+			if (count != 3) {
+				help();
+			}
+			file = new File(argv[first + 2]);
+		} else if (kind.equals("dag") || kind.equals("mrt")) {
+			if (count != 4) {
+				help();
+			}
+			degree = parseInt(argv[first + 2]);
+			file = new File(argv[first + 3]);
+		} else {
+			help();
+			return;
+		}
+
+		try {
+			ModelGenerator.generate(kind, size, degree, seed, file);
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private static void help() {
+		System.err.println("Usage 1: Model_Generator [--seed S] gspn [places] [pnmlfilename]");
+		System.err.println("Usage 2: Model_Generator [--seed S] swn-HadoopCap [jobs] [pnmlfilename]");
+		System.err.println("Usage 3: Model_Generator [--seed S] dag [nodes] [fanout] [jsonfilename]");
+		System.err.println("Usage 4: Model_Generator [--seed S] mrt [templates] [classes] [xmlfilename]");
+		System.exit(0);
+	}
+
+	private static int parseInt(String text) {
+		try {
+			return Integer.parseInt(text);
+		} catch (NumberFormatException e) {
+			help();
+			return 0;
+		}
+	}
+
+	private static long parseLong(String text) {
+		try {
+			return Long.parseLong(text);
+		} catch (NumberFormatException e) {
+			help();
+			return 0;
+		}
+	}
+
+}
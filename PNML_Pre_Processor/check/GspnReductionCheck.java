@@ -0,0 +1,447 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * GSPN Reduction Check
+ *
+ * Checks that the gspn-reduced mode keeps the behaviour of a GSPN: each net
+ * is read twice, one copy is reduced by GspnReducer, and both are simulated
+ * for the same number of timed firings. The throughput of every transition
+ * and the mean marking of every place left by the reduction must then be
+ * the same in both, within a tolerance for the simulation noise. It does
+ * not need JMT
+ *
+ * The simulation follows the JMT semantics: an immediate transition fires
+ * before any timed one, the highest priority first and among those at
+ * random by weight; a timed transition fires after an exponential time,
+ * and an infinite server transition fires at its rate times its enabling
+ * degree. It reads the nets as GspnNet, without JMT, so it checks the
+ * reductions against these semantics, not against a run of JMT; it is a
+ * development check, kept out of the sources of the pre-processor.
+ * Without any file, two small built-in nets are checked: one with a place
+ * bounding the enabling degree of an infinite server transition, a place
+ * only in self-loops of a single server transition and an immediate
+ * transition to fuse, and one with an immediate transition of a low
+ * priority whose output enables an immediate transition of a higher
+ * priority in conflict with a third one, which must not be fused
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public final class GspnReductionCheck {
+
+	private static final int DEFAULT_EVENTS = 200000;
+	private static final int MAX_IMMEDIATE_FIRINGS = 100000;
+	private static final int MIN_FIRINGS = 1000;
+	private static final double TOLERANCE = 0.05;
+	private static final double MARKING_FLOOR = 0.01;
+	private static final long SEED = 1L;
+
+	private static final String BUILT_IN_NET = "<pnml><net id=\"check\"><page id=\"page\">"
+			+ place("Jobs", 5) + place("Cores", 2) + place("Done", 0) + place("Queue", 3) + place("Lock", 1)
+			+ "<transition id=\"Work\">" + specific(PnmlConverter.PNML_DICE_U_TKIND_EXPONENTIAL, "1.0")
+			+ specific(PnmlConverter.PNML_DICE_U_TSERV_INFINITE, "") + "</transition>"
+			+ "<transition id=\"Finish\">" + specific(PnmlConverter.PNML_DICE_U_TKIND_IMMEDIATE_PRIORITY, "1")
+			+ specific(PnmlConverter.PNML_DICE_U_TKIND_IMMEDIATE, "1.0") + "</transition>"
+			+ "<transition id=\"Serve\">" + specific(PnmlConverter.PNML_DICE_U_TKIND_EXPONENTIAL, "2.0")
+			+ "</transition>"
+			+ arc("Jobs", "Work") + arc("Cores", "Work") + arc("Work", "Cores") + arc("Work", "Done")
+			+ arc("Done", "Finish") + arc("Finish", "Jobs")
+			+ arc("Queue", "Serve") + arc("Lock", "Serve") + arc("Serve", "Lock") + arc("Serve", "Queue")
+			+ "</page></net></pnml>";
+
+	/*
+	 * Once Start fires, Take (priority 2) fires before Forward (priority 1)
+	 * and takes the token of Shared, so Grab (priority 3) never fires: fusing
+	 * Forward into Start would let Grab take it first.
+	 */
+	private static final String BUILT_IN_PRIORITY_NET = "<pnml><net id=\"priorities\"><page id=\"page\">"
+			+ place("Idle", 1) + place("Forwarding", 0) + place("Forwarded", 0) + place("Ready", 0)
+			+ place("Shared", 1) + place("Taken", 0) + place("Grabbed", 0)
+			+ "<transition id=\"Start\">" + specific(PnmlConverter.PNML_DICE_U_TKIND_EXPONENTIAL, "1.0")
+			+ "</transition>" + immediate("Forward", 1) + immediate("Take", 2) + immediate("Grab", 3)
+			+ "<transition id=\"ReleaseTaken\">" + specific(PnmlConverter.PNML_DICE_U_TKIND_EXPONENTIAL, "2.0")
+			+ "</transition>"
+			+ "<transition id=\"ReleaseGrabbed\">" + specific(PnmlConverter.PNML_DICE_U_TKIND_EXPONENTIAL, "2.0")
+			+ "</transition>"
+			+ arc("Idle", "Start") + arc("Start", "Forwarding") + arc("Start", "Ready")
+			+ arc("Forwarding", "Forward") + arc("Forward", "Forwarded")
+			+ arc("Ready", "Take") + arc("Shared", "Take") + arc("Take", "Taken")
+			+ arc("Forwarded", "Grab") + arc("Shared", "Grab") + arc("Grab", "Grabbed")
+			+ arc("Taken", "ReleaseTaken") + arc("Forwarded", "ReleaseTaken") + arc("ReleaseTaken", "Idle")
+			+ arc("ReleaseTaken", "Shared")
+			+ arc("Grabbed", "ReleaseGrabbed") + arc("Ready", "ReleaseGrabbed") + arc("ReleaseGrabbed", "Idle")
+			+ arc("ReleaseGrabbed", "Shared")
+			+ "</page></net></pnml>";
+
+	public static void main(String argv[]) {
+		int events = DEFAULT_EVENTS;
+		int first = 0;
+		if (argv.length >= 2 && argv[0].equals("--events")) {
+			events = Integer.parseInt(argv[1]);
+			first = 2;
+		}
+		boolean passed = true;
+		try {
+			if (first == argv.length) {
+				passed = check("built-in net", new ByteArrayInputStream(BUILT_IN_NET.getBytes("UTF-8")), null,
+						events);
+				passed &= check("built-in priority net",
+						new ByteArrayInputStream(BUILT_IN_PRIORITY_NET.getBytes("UTF-8")), null, events);
+			}
+			for (int i = first; i < argv.length; i++) {
+				File file = new File(argv[i]);
+				if (argv[i].startsWith("--") || !file.isFile()) {
+					help();
+				}
+				File index = getIndexFile(file);
+				InputStream in = Compression.openInput(file);
+				try {
+					passed &= check(file.getName(), in, index, events);
+				} finally {
+					in.close();
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(2);
+		}
+		System.exit(passed ? 0 : 1);
+	}
+
+	private static void help() {
+		System.err.println("Usage: GspnReductionCheck [--events count] [pnmlfilename ...]");
+		System.err.println("The index file of each net is the file with the same name ending in .idx, if any");
+		System.exit(0);
+	}
+
+	/**
+	 * Returns the file with the name of the given one, without its PNML and
+	 * compression extensions, ending in .idx, or null if there is none.
+	 */
+	private static File getIndexFile(File file) {
+		String name = Compression.getName(file);
+		if (name.endsWith(".pnml")) {
+			name = name.substring(0, name.length() - ".pnml".length());
+		}
+		File index = new File(file.getAbsoluteFile().getParentFile(), name + ".idx");
+		return index.isFile() ? index : null;
+	}
+
+	/**
+	 * Simulates the net with and without reduction, keeping the ids of the
+	 * index file if any, prints the comparison and returns true if every
+	 * measure compared is the same in both.
+	 */
+	private static boolean check(String name, InputStream in, File index, int events) throws Exception {
+		byte[] bytes = readAll(in);
+		GspnNet full = PnmlConverter.readGSPNNet(new ByteArrayInputStream(bytes));
+		GspnNet reduced = PnmlConverter.readGSPNNet(new ByteArrayInputStream(bytes));
+		Set<String> kept = PnmlConverter.readIndex(index);
+		GspnReducer reducer = GspnReducer.reduce(reduced, kept);
+
+		Simulation a = new Simulation(full);
+		Simulation b = new Simulation(reduced);
+		a.run(events);
+		b.run(events);
+
+		List<String> mismatches = new ArrayList<String>();
+		int compared = 0;
+		double largest = 0.0;
+		for (GspnNet.Transition t : reduced.getTransitions()) {
+			if (t.removed) {
+				continue;
+			}
+			long ca = a.getFirings(t.id);
+			long cb = b.getFirings(t.id);
+			if (ca < MIN_FIRINGS && cb < MIN_FIRINGS) {
+				continue;
+			}
+			double ta = a.getThroughput(t.id);
+			double tb = b.getThroughput(t.id);
+			double difference = Math.abs(ta - tb) / Math.max(ta, tb);
+			largest = Math.max(largest, difference);
+			compared++;
+			if (difference > TOLERANCE) {
+				mismatches.add("transition " + t.id + ": throughput " + format(ta) + " without reduction, "
+						+ format(tb) + " with reduction");
+			}
+		}
+		for (GspnNet.Place p : reduced.getPlaces()) {
+			if (p.removed) {
+				continue;
+			}
+			double ma = a.getMeanMarking(p.id);
+			double mb = b.getMeanMarking(p.id);
+			double difference = Math.abs(ma - mb) / Math.max(Math.max(ma, mb), MARKING_FLOOR);
+			if (Math.abs(ma - mb) <= MARKING_FLOOR) {
+				difference = 0.0;
+			}
+			largest = Math.max(largest, difference);
+			compared++;
+			if (difference > TOLERANCE) {
+				mismatches.add("place " + p.id + ": mean marking " + format(ma) + " without reduction, "
+						+ format(mb) + " with reduction");
+			}
+		}
+
+		int places = full.getPlaces().size();
+		int transitions = full.getTransitions().size();
+		System.out.println(name + ": places " + places + " -> " + (places - reducer.getRemovedPlaces())
+				+ ", transitions " + transitions + " -> " + (transitions - reducer.getRemovedTransitions())
+				+ ", " + compared + " measures compared, largest difference "
+				+ format(100.0 * largest) + "%" + (mismatches.isEmpty() ? ": OK" : ": FAILED"));
+		if (a.isDead() || b.isDead()) {
+			System.out.println("  dead marking reached " + (a.isDead() ? "without" : "with")
+					+ " reduction, after " + format(a.isDead() ? a.getTime() : b.getTime()) + " time units");
+		}
+		for (String mismatch : mismatches) {
+			System.out.println("  " + mismatch);
+		}
+		return mismatches.isEmpty();
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while ((n = in.read(buffer)) > 0) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.4f", value);
+	}
+
+	private static String place(String id, int marking) {
+		return "<place id=\"" + id + "\"><initialMarking><text>" + marking + "</text></initialMarking></place>";
+	}
+
+	private static String specific(String grammar, String value) {
+		return "<toolspecific tool=\"DICE PNML Extensions\" version=\"0.1\"><value grammar=\"" + grammar + "\">"
+				+ value + "</value></toolspecific>";
+	}
+
+	private static String immediate(String id, int priority) {
+		return "<transition id=\"" + id + "\">"
+				+ specific(PnmlConverter.PNML_DICE_U_TKIND_IMMEDIATE_PRIORITY, String.valueOf(priority))
+				+ specific(PnmlConverter.PNML_DICE_U_TKIND_IMMEDIATE, "1.0") + "</transition>";
+	}
+
+	private static String arc(String source, String target) {
+		return "<arc id=\"" + source + "-" + target + "\" source=\"" + source + "\" target=\"" + target
+				+ "\"></arc>";
+	}
+
+	/**
+	 * A simulation of the places and transitions of a net not removed by the
+	 * reduction, from its initial marking.
+	 */
+	private static final class Simulation {
+
+		private final List<GspnNet.Place> places = new ArrayList<GspnNet.Place>();
+		private final List<GspnNet.Transition> transitions = new ArrayList<GspnNet.Transition>();
+		private final Map<String, Integer> placeIndex = new HashMap<String, Integer>();
+		private final Map<String, Integer> transitionIndex = new HashMap<String, Integer>();
+		private final int[] marking;
+		private final double[] area;
+		private final long[] firings;
+		private final double[] rate;
+		private final int[] priority;
+		private final double[] weight;
+		private final Random random = new Random(SEED);
+		private double time;
+		private boolean dead;
+
+		Simulation(GspnNet net) {
+			for (GspnNet.Place p : net.getPlaces()) {
+				if (!p.removed) {
+					placeIndex.put(p.id, Integer.valueOf(places.size()));
+					places.add(p);
+				}
+			}
+			for (GspnNet.Transition t : net.getTransitions()) {
+				if (!t.removed) {
+					transitionIndex.put(t.id, Integer.valueOf(transitions.size()));
+					transitions.add(t);
+				}
+			}
+			marking = new int[places.size()];
+			area = new double[places.size()];
+			for (int i = 0; i < marking.length; i++) {
+				marking[i] = places.get(i).marking;
+			}
+			firings = new long[transitions.size()];
+			rate = new double[transitions.size()];
+			priority = new int[transitions.size()];
+			weight = new double[transitions.size()];
+			for (int i = 0; i < rate.length; i++) {
+				rate[i] = 1.0;
+				weight[i] = 1.0;
+				for (String[] specific : transitions.get(i).specifics) {
+					if (PnmlConverter.PNML_DICE_U_TKIND_EXPONENTIAL.equals(specific[0])) {
+						rate[i] = Double.parseDouble(specific[1].trim());
+					} else if (PnmlConverter.PNML_DICE_U_TKIND_IMMEDIATE_PRIORITY.equals(specific[0])) {
+						priority[i] = Integer.parseInt(specific[1].trim());
+					} else if (PnmlConverter.PNML_DICE_U_TKIND_IMMEDIATE.equals(specific[0])) {
+						weight[i] = Double.parseDouble(specific[1].trim());
+					}
+				}
+			}
+		}
+
+		/**
+		 * Fires timed transitions until the given number have fired or no
+		 * transition is enabled.
+		 */
+		void run(int events) {
+			double[] rates = new double[transitions.size()];
+			for (int n = 0; n < events; n++) {
+				fireImmediateTransitions();
+				double total = 0.0;
+				for (int i = 0; i < rates.length; i++) {
+					GspnNet.Transition t = transitions.get(i);
+					rates[i] = 0.0;
+					if (!t.immediate) {
+						int degree = getEnablingDegree(t);
+						if (degree > 0) {
+							rates[i] = rate[i] * (t.infiniteServer ? degree : 1);
+						}
+					}
+					total += rates[i];
+				}
+				if (total == 0.0) {
+					dead = true;
+					return;
+				}
+				double delay = -Math.log(1.0 - random.nextDouble()) / total;
+				for (int i = 0; i < marking.length; i++) {
+					area[i] += marking[i] * delay;
+				}
+				time += delay;
+				fire(choose(rates, total));
+			}
+		}
+
+		private void fireImmediateTransitions() {
+			double[] weights = new double[transitions.size()];
+			for (int n = 0; n < MAX_IMMEDIATE_FIRINGS; n++) {
+				int highest = Integer.MIN_VALUE;
+				for (int i = 0; i < weights.length; i++) {
+					GspnNet.Transition t = transitions.get(i);
+					if (t.immediate && getEnablingDegree(t) > 0) {
+						highest = Math.max(highest, priority[i]);
+					}
+				}
+				if (highest == Integer.MIN_VALUE) {
+					return;
+				}
+				double total = 0.0;
+				for (int i = 0; i < weights.length; i++) {
+					GspnNet.Transition t = transitions.get(i);
+					weights[i] = (t.immediate && priority[i] == highest && getEnablingDegree(t) > 0) ? weight[i] : 0.0;
+					total += weights[i];
+				}
+				fire(choose(weights, total));
+			}
+			throw new IllegalStateException("immediate transitions keep firing without time passing");
+		}
+
+		/**
+		 * Returns how many times the transition could fire at once from the
+		 * current marking, at most Integer.MAX_VALUE if it has no input.
+		 */
+		private int getEnablingDegree(GspnNet.Transition t) {
+			for (GspnNet.Arc a : t.inhibitors) {
+				if (marking[placeIndex.get(a.place.id).intValue()] >= a.weight) {
+					return 0;
+				}
+			}
+			int degree = Integer.MAX_VALUE;
+			for (GspnNet.Arc a : t.inputs) {
+				degree = Math.min(degree, marking[placeIndex.get(a.place.id).intValue()] / a.weight);
+			}
+			return (degree == Integer.MAX_VALUE) ? 1 : degree;
+		}
+
+		private int choose(double[] weights, double total) {
+			double r = random.nextDouble() * total;
+			int last = -1;
+			for (int i = 0; i < weights.length; i++) {
+				if (weights[i] > 0.0) {
+					last = i;
+					r -= weights[i];
+					if (r < 0.0) {
+						return i;
+					}
+				}
+			}
+			return last;
+		}
+
+		private void fire(int i) {
+			GspnNet.Transition t = transitions.get(i);
+			for (GspnNet.Arc a : t.inputs) {
+				marking[placeIndex.get(a.place.id).intValue()] -= a.weight;
+			}
+			for (GspnNet.Arc a : t.outputs) {
+				marking[placeIndex.get(a.place.id).intValue()] += a.weight;
+			}
+			firings[i]++;
+		}
+
+		long getFirings(String id) {
+			return firings[transitionIndex.get(id).intValue()];
+		}
+
+		double getThroughput(String id) {
+			return (time > 0.0) ? getFirings(id) / time : 0.0;
+		}
+
+		double getMeanMarking(String id) {
+			int i = placeIndex.get(id).intValue();
+			return (time > 0.0) ? area[i] / time : marking[i];
+		}
+
+		double getTime() {
+			return time;
+		}
+
+		boolean isDead() {
+			return dead;
+		}
+
+	}
+
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import jmt.gui.common.definitions.CommonModel;
+
+/**
+ * SWN HadoopCap Check
+ *
+ * Checks that the swn mode converts every job of a HadoopCap net, by
+ * comparing its model with the model the swn-HadoopCap mode wrote for the
+ * same net, given as a JSIMG file. The jobs are the colours of the start
+ * class that the swn mode can start, and the Job classes of the
+ * swn-HadoopCap model. For each job, the transition modes of each phase
+ * (starting the job, acquiring and releasing resources for the map tasks,
+ * starting the reduce phase, acquiring and releasing resources for the
+ * reduce tasks) are counted in both models: in the swn mode, the modes of
+ * the transitions of the phase, found by the names the DICE exporter gives
+ * them, and in the swn-HadoopCap mode, the modes of the station of the
+ * phase for the job. It does not need the PNML framework
+ *
+ * The net fixes the resource colour of each arc, so in the swn mode the
+ * acquiring phases have a mode for each of the two transitions of the
+ * phase and the releasing phases a single one, while swn-HadoopCap has one
+ * for each resource colour. The counts of a phase may thus differ, but
+ * they must be positive in both models or in neither, and the number of
+ * jobs must be the same
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public final class SwnHadoopCapCheck {
+
+	private static final String[] PHASES = { "StartJob", "MapAcqRes", "MapRelRes", "RunRedPhase", "RedAcqRes",
+			"RedRelRes" };
+
+	public static void main(String argv[]) {
+		if (argv.length != 2) {
+			help();
+		}
+		boolean passed;
+		try {
+			passed = check(new File(argv[0]), new File(argv[1]));
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(2);
+			return;
+		}
+		System.exit(passed ? 0 : 1);
+	}
+
+	private static void help() {
+		System.err.println("Usage: SwnHadoopCapCheck [pnmlfilename] [jsimgfilename]");
+		System.err.println("The JSIMG file is the one written by the swn-HadoopCap mode for the PNML file");
+		System.exit(0);
+	}
+
+	/**
+	 * Converts the net in the swn mode, counts the jobs and the modes of
+	 * each phase in both models, prints them and returns true if they agree.
+	 */
+	private static boolean check(File pnml, File jsimg) throws Exception {
+		Map<String, List<String>> ids = new HashMap<String, List<String>>();
+		List<String> colourSets = new ArrayList<String>();
+		readNames(pnml, ids, colourSets);
+		int degree = colourSets.size() - 4;
+		if (degree < 1) {
+			throw new IllegalArgumentException(pnml.getName() + " is not a HadoopCap net");
+		}
+		String start = colourSets.get(degree);
+		String reducing = colourSets.get(degree + 1);
+		String mapping = colourSets.get(degree + 2);
+
+		CommonModel swn;
+		InputStream in = Compression.openInput(pnml);
+		try {
+			swn = PnmlConverter.convertSWN(in, null);
+		} finally {
+			in.close();
+		}
+		Map<String, Object> stations = new HashMap<String, Object>();
+		for (Object key : swn.getStationKeys()) {
+			stations.put(swn.getStationName(key), key);
+		}
+
+		int[][] swnModes = new int[degree][PHASES.length];
+		int swnJobs = 0;
+		for (int j = 0; j < degree; j++) {
+			swnModes[j][0] = countModes(swn, stations, ids, start + "_trans_" + start + "_" + j);
+			swnModes[j][1] = countModes(swn, stations, ids, mapping + "_trans_Res_" + mapping + "_" + j);
+			swnModes[j][2] = countModes(swn, stations, ids, mapping + "_trans_" + mapping + "_" + j);
+			for (String id : getIds(ids, "Red_" + start + "_" + j)) {
+				if (stations.containsKey(id)) {
+					for (Object key : swn.getForwardConnections(stations.get(id))) {
+						swnModes[j][3] += swn.getTransitionModeListSize(key);
+					}
+				}
+			}
+			swnModes[j][4] = countModes(swn, stations, ids, reducing + "_trans_Res_" + reducing + "_" + j);
+			swnModes[j][5] = countModes(swn, stations, ids, reducing + "_trans_" + reducing + "_" + j);
+			if (swnModes[j][0] > 0) {
+				swnJobs++;
+			}
+		}
+
+		Map<String, Integer> capModes = new HashMap<String, Integer>();
+		int capJobs = readJsimg(jsimg, capModes);
+
+		boolean passed = swnJobs == capJobs;
+		System.out.println(pnml.getName() + ": jobs " + swnJobs + " in the swn mode, " + capJobs
+				+ " in the swn-HadoopCap mode");
+		for (int j = 0; j < degree; j++) {
+			StringBuilder line = new StringBuilder("  job ").append(j).append(':');
+			for (int i = 0; i < PHASES.length; i++) {
+				Integer modes = capModes.get(PHASES[i]);
+				int cap = (modes != null && capJobs > 0 && j < capJobs) ? modes.intValue() / capJobs : 0;
+				boolean agrees = (swnModes[j][i] > 0) == (cap > 0);
+				passed &= agrees;
+				line.append(' ').append(PHASES[i]).append(' ').append(swnModes[j][i]).append('/').append(cap)
+						.append(agrees ? "" : " (FAILED)");
+			}
+			System.out.println(line);
+		}
+		System.out.println(passed ? "  OK" : "  FAILED");
+		return passed;
+	}
+
+	/**
+	 * Returns the number of modes of the transitions with the given name in
+	 * the model, 0 for those left out of it as they can never fire.
+	 */
+	private static int countModes(CommonModel model, Map<String, Object> stations, Map<String, List<String>> ids,
+			String name) {
+		int modes = 0;
+		for (String id : getIds(ids, name)) {
+			if (stations.containsKey(id)) {
+				modes += model.getTransitionModeListSize(stations.get(id));
+			}
+		}
+		return modes;
+	}
+
+	private static List<String> getIds(Map<String, List<String>> ids, String name) {
+		List<String> list = ids.get(name);
+		return (list != null) ? list : new ArrayList<String>();
+	}
+
+	/**
+	 * Reads the ids of the places and transitions of the first net by name,
+	 * and the names of its colour classes in the order they are defined.
+	 */
+	private static void readNames(File file, Map<String, List<String>> ids, List<String> colourSets)
+			throws Exception {
+		InputStream in = Compression.openInput(file);
+		try {
+			XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+			String id = null;
+			boolean inName = false;
+			boolean firstValue = false;
+			int nets = 0;
+			while (reader.hasNext() && nets < 2) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String tag = reader.getLocalName();
+				if (tag.equals("net")) {
+					nets++;
+				} else if (tag.equals("place") || tag.equals("transition")) {
+					id = reader.getAttributeValue(null, "id");
+				} else if (tag.equals("arc")) {
+					id = null;
+				} else if (tag.equals("name")) {
+					inName = id != null;
+				} else if (tag.equals("text") && inName) {
+					String name = reader.getElementText().trim();
+					List<String> list = ids.get(name);
+					if (list == null) {
+						list = new ArrayList<String>();
+						ids.put(name, list);
+					}
+					list.add(id);
+					id = null;
+					inName = false;
+				} else if (tag.equals("toolspecific")) {
+					firstValue = true;
+				} else if (tag.equals("value") && firstValue) {
+					// A colour class is defined by the name and the order of
+					// the class, in this order
+					firstValue = false;
+					if (PnmlConverter.PNML_DICE_U_COLOR_COLORSET.equals(reader.getAttributeValue(null, "grammar"))) {
+						colourSets.add(reader.getElementText().trim());
+					}
+				}
+			}
+			reader.close();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads the number of modes of each station of a JSIMG file into the
+	 * map, and returns the number of its Job classes.
+	 */
+	private static int readJsimg(File file, Map<String, Integer> modes) throws Exception {
+		InputStream in = Compression.openInput(file);
+		try {
+			XMLStreamReader reader = newInputFactory().createXMLStreamReader(in);
+			int jobs = 0;
+			String node = null;
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String tag = reader.getLocalName();
+				if (tag.equals("userClass")
+						&& String.valueOf(reader.getAttributeValue(null, "name")).matches("Job\\d+")) {
+					jobs++;
+				} else if (tag.equals("node")) {
+					node = reader.getAttributeValue(null, "name");
+				} else if (tag.equals("subParameter") && node != null
+						&& "modeName".equals(reader.getAttributeValue(null, "name"))) {
+					Integer count = modes.get(node);
+					modes.put(node, Integer.valueOf((count != null) ? count.intValue() + 1 : 1));
+				}
+			}
+			reader.close();
+			return jobs;
+		} finally {
+			in.close();
+		}
+	}
+
+	private static XMLInputFactory newInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		return factory;
+	}
+
+}
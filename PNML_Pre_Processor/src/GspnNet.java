@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GSPN Net
+ *
+ * A GSPN held as places, transitions and arcs, so that it can be rewritten
+ * by GspnReducer before its stations are added to the model. Places and
+ * transitions keep the order in which they were added, and each arc is
+ * linked from both its place and its transition
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class GspnNet {
+
+	private final List<Place> places = new ArrayList<Place>();
+	private final List<Transition> transitions = new ArrayList<Transition>();
+	private final Map<String, Place> placeMap = new HashMap<String, Place>();
+	private final Map<String, Transition> transitionMap = new HashMap<String, Transition>();
+
+	static final class Place {
+
+		final String id;
+		final int marking;
+		boolean removed;
+		final List<Arc> inputs = new ArrayList<Arc>();
+		final List<Arc> outputs = new ArrayList<Arc>();
+		final List<Arc> inhibitors = new ArrayList<Arc>();
+
+		Place(String id, int marking) {
+			this.id = id;
+			this.marking = marking;
+		}
+
+	}
+
+	static final class Transition {
+
+		final String id;
+		final List<String[]> specifics;
+		final boolean immediate;
+		final int priority;
+		final boolean infiniteServer;
+		boolean removed;
+		final List<Arc> inputs = new ArrayList<Arc>();
+		final List<Arc> outputs = new ArrayList<Arc>();
+		final List<Arc> inhibitors = new ArrayList<Arc>();
+
+		Transition(String id, List<String[]> specifics, boolean immediate, int priority, boolean infiniteServer) {
+			this.id = id;
+			this.specifics = specifics;
+			this.immediate = immediate;
+			this.priority = priority;
+			this.infiniteServer = infiniteServer;
+		}
+
+	}
+
+	/**
+	 * An arc between a place and a transition: an input or inhibitor arc of
+	 * the transition, or an output arc of the transition into the place.
+	 */
+	static final class Arc {
+
+		final Place place;
+		Transition transition;
+		int weight;
+
+		Arc(Place place, Transition transition, int weight) {
+			this.place = place;
+			this.transition = transition;
+			this.weight = weight;
+		}
+
+	}
+
+	void addPlace(String id, int marking) {
+		Place p = new Place(id, marking);
+		places.add(p);
+		placeMap.put(id, p);
+	}
+
+	/**
+	 * Adds a transition with its toolspecifics, given as pairs of grammar and
+	 * value. Among the enabled immediate transitions, those with the highest
+	 * priority fire first. An infinite server transition fires as many times
+	 * at once as its input places allow, so its enabling degree depends on
+	 * their markings.
+	 */
+	void addTransition(String id, List<String[]> specifics, boolean immediate, int priority,
+			boolean infiniteServer) {
+		Transition t = new Transition(id, specifics, immediate, priority, infiniteServer);
+		transitions.add(t);
+		transitionMap.put(id, t);
+	}
+
+	/**
+	 * Adds an arc between a place and a transition, in either direction. An
+	 * inhibitor arc from a transition is an output arc, as in the model built
+	 * without reduction. Returns false, adding nothing, if either end is
+	 * unknown or both ends are of the same kind.
+	 */
+	boolean addArc(String source, String target, int weight, boolean inhibitor) {
+		Place p = placeMap.get(source);
+		Transition t = transitionMap.get(target);
+		if (p != null && t != null) {
+			Arc a = new Arc(p, t, weight);
+			if (inhibitor) {
+				p.inhibitors.add(a);
+				t.inhibitors.add(a);
+			} else {
+				p.outputs.add(a);
+				t.inputs.add(a);
+			}
+			return true;
+		}
+		t = transitionMap.get(source);
+		p = placeMap.get(target);
+		if (p != null && t != null) {
+			Arc a = new Arc(p, t, weight);
+			t.outputs.add(a);
+			p.inputs.add(a);
+			return true;
+		}
+		return false;
+	}
+
+	List<Place> getPlaces() {
+		return places;
+	}
+
+	List<Transition> getTransitions() {
+		return transitions;
+	}
+
+}
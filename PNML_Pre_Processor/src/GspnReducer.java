@@ -0,0 +1,341 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GSPN Reducer
+ *
+ * Rewrites a GSPN into a smaller one with the same behaviour, so that JMT
+ * simulates fewer events per token. The places and transitions to be
+ * measured are kept. The following reductions are applied until none
+ * applies any more:
+ *
+ * - parallel arcs between the same place and transition are merged into a
+ *   single arc with the sum of their weights (the smallest weight for
+ *   inhibitor arcs)
+ * - an immediate transition whose only input is an unmarked place, fed by a
+ *   single transition and read by no other, is fused with the transition
+ *   feeding the place: that transition gets its outputs, and the place and
+ *   the immediate transition are removed. This is only done when firing the
+ *   immediate transition at once cannot change which transitions fire
+ *   next: when its priority is higher than that of every other immediate
+ *   transition, or when no immediate transition its outputs enable shares
+ *   an input place with another immediate transition and no immediate
+ *   transition is inhibited by its outputs
+ * - places that never disable a transition are removed: places no
+ *   transition reads, places only in self-loops of single server
+ *   transitions with enough tokens for all of them at once, and places
+ *   with the same marking and the same arcs as another place
+ *
+ * Places with inhibitor arcs are never removed or fused. A self-loop place
+ * of an infinite server transition is kept whatever its marking, as it
+ * bounds the enabling degree of the transition, i.e. how many firings are
+ * in progress at once (the usual way a net caps its concurrency)
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class GspnReducer {
+
+	private final GspnNet net;
+	private final Set<String> kept;
+
+	private int mergedArcs;
+	private int fusedTransitions;
+	private int removedPlaces;
+
+	private GspnReducer(GspnNet net, Set<String> kept) {
+		this.net = net;
+		this.kept = kept;
+	}
+
+	/**
+	 * Reduces the net in place, keeping the places and transitions with the
+	 * given ids.
+	 */
+	static GspnReducer reduce(GspnNet net, Set<String> kept) {
+		GspnReducer reducer = new GspnReducer(net, kept);
+		reducer.mergeParallelArcs();
+		boolean changed = true;
+		while (changed) {
+			changed = reducer.fuseImmediateTransitions();
+			changed |= reducer.removeRedundantPlaces();
+		}
+		return reducer;
+	}
+
+	int getMergedArcs() {
+		return mergedArcs;
+	}
+
+	int getRemovedTransitions() {
+		return fusedTransitions;
+	}
+
+	int getRemovedPlaces() {
+		return removedPlaces;
+	}
+
+	private void mergeParallelArcs() {
+		for (GspnNet.Transition t : net.getTransitions()) {
+			mergeParallelArcs(t.inputs, false, true);
+			mergeParallelArcs(t.outputs, false, false);
+			mergeParallelArcs(t.inhibitors, true, true);
+		}
+	}
+
+	/**
+	 * Merges the arcs of a list of a transition that share their place, and
+	 * unlinks the merged arcs from the place.
+	 */
+	private void mergeParallelArcs(List<GspnNet.Arc> arcs, boolean inhibitor, boolean fromPlace) {
+		Map<GspnNet.Place, GspnNet.Arc> first = new HashMap<GspnNet.Place, GspnNet.Arc>();
+		for (Iterator<GspnNet.Arc> i = arcs.iterator(); i.hasNext();) {
+			GspnNet.Arc a = i.next();
+			GspnNet.Arc f = first.get(a.place);
+			if (f == null) {
+				first.put(a.place, a);
+				continue;
+			}
+			f.weight = inhibitor ? Math.min(f.weight, a.weight) : f.weight + a.weight;
+			i.remove();
+			unlink(inhibitor ? a.place.inhibitors : (fromPlace ? a.place.outputs : a.place.inputs), a);
+			mergedArcs++;
+		}
+	}
+
+	/**
+	 * Fuses every immediate transition t2 fed only by a place p, itself fed
+	 * only by a transition t1, into t1. Nothing else reads p, so t2 fires
+	 * once for each firing of t1, and firing t1 with the outputs of t2 is the
+	 * same as firing t1 and then t2 unless other immediate transitions are
+	 * enabled in between. Those may fire before t2 in the net as it is, but
+	 * not once t2 is fused, so t2 is only fused when that order makes no
+	 * difference: when t2 has a higher priority than every other immediate
+	 * transition, as it then fires before them anyway, or when its outputs
+	 * cannot enable or disable an immediate transition in conflict.
+	 */
+	private boolean fuseImmediateTransitions() {
+		boolean changed = false;
+		int highest = Integer.MIN_VALUE;
+		int highestCount = 0;
+		for (GspnNet.Transition t : net.getTransitions()) {
+			if (t.removed || !t.immediate || t.priority < highest) {
+				continue;
+			}
+			highestCount = (t.priority == highest) ? highestCount + 1 : 1;
+			highest = t.priority;
+		}
+		for (GspnNet.Place p : net.getPlaces()) {
+			if (p.removed || kept.contains(p.id) || p.marking != 0 || !p.inhibitors.isEmpty()
+					|| p.inputs.size() != 1 || p.outputs.size() != 1) {
+				continue;
+			}
+			GspnNet.Arc in = p.inputs.get(0);
+			GspnNet.Arc out = p.outputs.get(0);
+			GspnNet.Transition t1 = in.transition;
+			GspnNet.Transition t2 = out.transition;
+			if (in.weight != 1 || out.weight != 1 || t1 == t2 || !t2.immediate || kept.contains(t2.id)
+					|| t2.inputs.size() != 1 || !t2.inhibitors.isEmpty()) {
+				continue;
+			}
+			if ((t2.priority < highest || highestCount > 1) && !hasOutputsOutOfConflict(t2)) {
+				continue;
+			}
+
+			unlink(t1.outputs, in);
+			for (GspnNet.Arc a : t2.outputs) {
+				GspnNet.Arc existing = null;
+				for (GspnNet.Arc b : t1.outputs) {
+					if (b.place == a.place) {
+						existing = b;
+						break;
+					}
+				}
+				if (existing != null) {
+					existing.weight += a.weight;
+					unlink(a.place.inputs, a);
+					mergedArcs++;
+				} else {
+					a.transition = t1;
+					t1.outputs.add(a);
+				}
+			}
+			t2.outputs.clear();
+			t2.inputs.clear();
+			t2.removed = true;
+			p.inputs.clear();
+			p.outputs.clear();
+			p.removed = true;
+			fusedTransitions++;
+			removedPlaces++;
+			changed = true;
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns true if no immediate transition reading an output place of the
+	 * transition shares an input place with another immediate transition,
+	 * and no immediate transition has an inhibitor arc from an output place,
+	 * so that the tokens the transition outputs do not change which of the
+	 * enabled immediate transitions fire.
+	 */
+	private static boolean hasOutputsOutOfConflict(GspnNet.Transition t) {
+		for (GspnNet.Arc out : t.outputs) {
+			for (GspnNet.Arc inhibitor : out.place.inhibitors) {
+				if (inhibitor.transition.immediate) {
+					return false;
+				}
+			}
+			for (GspnNet.Arc read : out.place.outputs) {
+				GspnNet.Transition reader = read.transition;
+				if (!reader.immediate) {
+					continue;
+				}
+				for (GspnNet.Arc in : reader.inputs) {
+					for (GspnNet.Arc other : in.place.outputs) {
+						if (other.transition != reader && other.transition.immediate) {
+							return false;
+						}
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean removeRedundantPlaces() {
+		boolean changed = false;
+		Map<String, GspnNet.Place> signatures = new HashMap<String, GspnNet.Place>();
+		List<GspnNet.Place> candidates = new ArrayList<GspnNet.Place>();
+		for (GspnNet.Place p : net.getPlaces()) {
+			if (p.removed || !p.inhibitors.isEmpty()) {
+				continue;
+			}
+			if (kept.contains(p.id)) {
+				if (!signatures.containsKey(getSignature(p))) {
+					signatures.put(getSignature(p), p);
+				}
+			} else {
+				candidates.add(p);
+			}
+		}
+
+		for (GspnNet.Place p : candidates) {
+			if (p.outputs.isEmpty() || isSelfLoopOnly(p)) {
+				removePlace(p);
+				changed = true;
+				continue;
+			}
+			String signature = getSignature(p);
+			if (signatures.containsKey(signature)) {
+				removePlace(p);
+				changed = true;
+			} else {
+				signatures.put(signature, p);
+			}
+		}
+		return changed;
+	}
+
+	/**
+	 * Returns true if every arc of the place is part of a self-loop of a
+	 * single server transition with the same weight on both sides and the
+	 * place holds enough tokens for all of them at once, so that its marking
+	 * never disables or slows down a transition, even while the tokens of
+	 * several of them are taken by their firings in progress.
+	 */
+	private static boolean isSelfLoopOnly(GspnNet.Place p) {
+		if (p.inputs.size() != p.outputs.size()) {
+			return false;
+		}
+		int total = 0;
+		for (GspnNet.Arc out : p.outputs) {
+			total += out.weight;
+			if (total > p.marking || out.transition.infiniteServer) {
+				return false;
+			}
+			boolean matched = false;
+			for (GspnNet.Arc in : p.inputs) {
+				if (in.transition == out.transition && in.weight == out.weight) {
+					matched = true;
+					break;
+				}
+			}
+			if (!matched) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the marking and the weighted arcs of the place, in a form that
+	 * is equal for two places exactly when they always hold the same number
+	 * of tokens and enable the same transitions.
+	 */
+	private static String getSignature(GspnNet.Place p) {
+		StringBuilder sb = new StringBuilder().append(p.marking);
+		appendArcs(sb.append("|in"), p.inputs);
+		appendArcs(sb.append("|out"), p.outputs);
+		return sb.toString();
+	}
+
+	private static void appendArcs(StringBuilder sb, List<GspnNet.Arc> arcs) {
+		List<String> list = new ArrayList<String>();
+		for (GspnNet.Arc a : arcs) {
+			list.add(a.transition.id + "*" + a.weight);
+		}
+		Collections.sort(list);
+		for (String s : list) {
+			sb.append(' ').append(s.length()).append(':').append(s);
+		}
+	}
+
+	private void removePlace(GspnNet.Place p) {
+		for (GspnNet.Arc a : p.inputs) {
+			unlink(a.transition.outputs, a);
+		}
+		for (GspnNet.Arc a : p.outputs) {
+			unlink(a.transition.inputs, a);
+		}
+		p.inputs.clear();
+		p.outputs.clear();
+		p.removed = true;
+		removedPlaces++;
+	}
+
+	private static void unlink(List<GspnNet.Arc> arcs, GspnNet.Arc arc) {
+		for (Iterator<GspnNet.Arc> i = arcs.iterator(); i.hasNext();) {
+			if (i.next() == arc) {
+				i.remove();
+				return;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * HadoopCap Class Event
+ *
+ * JDK Flight Recorder event for the transition modes and service times of
+ * a job class of a HadoopCap SWN, with the class, the resource classes it
+ * may acquire, the transition modes added and the map and reduce tasks of
+ * the job
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+@Name("dice.preprocessor.HadoopCapClass")
+@Label("HadoopCap Class")
+@Category({ "DICE", "Pre-Processors", "PNML" })
+@Description("Transition modes and service times of a job class of a HadoopCap SWN")
+final class HadoopCapClassEvent extends jdk.jfr.Event {
+
+	@Label("Class")
+	String jobClass;
+
+	@Label("Resource Classes")
+	int resourceClasses;
+
+	@Label("Transition Modes")
+	int transitionModes;
+
+	@Label("Map Tasks")
+	int mapTasks;
+
+	@Label("Reduce Tasks")
+	int reduceTasks;
+
+}
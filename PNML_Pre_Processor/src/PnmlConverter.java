@@ -0,0 +1,1764 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.xerces.parsers.DOMParser;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import fr.lip6.move.pnml.framework.utils.PNMLUtils;
+import fr.lip6.move.pnml.framework.utils.exception.ImportException;
+import fr.lip6.move.pnml.framework.utils.exception.InvalidIDException;
+import fr.lip6.move.pnml.ptnet.hlapi.ArcHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.PetriNetDocHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.PetriNetHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.PlaceHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.ToolInfoHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.TransitionHLAPI;
+import jmt.gui.common.CommonConstants;
+import jmt.gui.common.Defaults;
+import jmt.gui.common.definitions.CommonModel;
+import jmt.gui.common.definitions.SimulationDefinition;
+import jmt.gui.common.distributions.Exponential;
+import jmt.gui.common.forkStrategies.OutPath;
+import jmt.gui.common.forkStrategies.ProbabilitiesFork;
+import jmt.gui.common.serviceStrategies.ZeroStrategy;
+
+/**
+ * PNML Converter
+ * 
+ * Builds the JMT model of a GSPN or SWN from its PNML representation. Each
+ * conversion runs on its own converter instance, so any number of
+ * conversions can run concurrently in the same JVM
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+public class PnmlConverter {
+
+	private static final String PNML_DICE_E_VALUE = "value";
+	private static final String PNML_DICE_A_VALUE_GRAMMAR = "grammar";
+	static final String PNML_DICE_U_TSERV_INFINITE = "http://es.unizar.dsico/pnconstants/tserv/infinite";
+	static final String PNML_DICE_U_TKIND_EXPONENTIAL = "http://es.unizar.disco/pnconstants/tkind/exponential";
+	static final String PNML_DICE_U_TKIND_IMMEDIATE_PRIORITY = "http://es.unizar.disco/pnconstants/tkind/immediatepriority";
+	static final String PNML_DICE_U_TKIND_IMMEDIATE = "http://es.unizar.disco/pnconstants/tkind/immediate";
+	private static final String PNML_DICE_U_AKIND_INHIBITOR = "http://es.unizar.dsico/pnconstants/akind/inhibitor";
+	static final String PNML_DICE_U_COLOR_COLORSET = "http://es.unizar.dsico/pnconstants/color/colorset";
+	private static final String PNML_DICE_U_COLOR_COLOR = "http://es.unizar.dsico/pnconstants/color/color";
+
+	private static final int PARALLEL_THRESHOLD = 256;
+	private static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+	private static final Object IMPORT_LOCK = new Object();
+
+	private static final ThreadLocal<DOMParser> parsers = new ThreadLocal<DOMParser>() {
+		@Override
+		protected DOMParser initialValue() {
+			return new DOMParser();
+		}
+	};
+
+	private static ExecutorService specificsPool;
+	private static ExecutorService netsPool;
+
+	private final CommonModel model = new CommonModel();
+	private final Metrics metrics;
+
+	private boolean isNormalArc;
+
+	private Object classKey;
+	private final PnmlRegistry registry = new PnmlRegistry();
+	private PnmlNet net;
+	private List<ArcHLAPI> arcs;
+	private List<List<String[]>> arcSpecifics;
+
+	private static class ColorSet {
+
+		public String name;
+		public boolean isOrdered;
+		public List<Color> colors;
+
+		public ColorSet(String name, boolean isOrdered, List<Color> colors) {
+			this.name = name;
+			this.isOrdered = isOrdered;
+			this.colors = colors;
+		}
+
+	}
+
+	private static class Color {
+
+		public int id;
+		public String name;
+		public int numOfTokens;
+
+		public Color(int id, String name, int numOfTokens) {
+			this.id = id;
+			this.name = name;
+			this.numOfTokens = numOfTokens;
+		}
+
+	}
+
+	private static class NetElement {
+
+		public String id;
+		public String source;
+		public String target;
+		public Integer value;
+		public List<String[]> specifics = new ArrayList<String[]>();
+		public List<SwnNet.Term> colours = new ArrayList<SwnNet.Term>();
+
+	}
+
+	PnmlConverter() {
+		this(Metrics.NONE);
+	}
+
+	private PnmlConverter(Metrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Reads a PNML file representing a GSPN and returns its model. The index
+	 * file, if not null, lists the ids of the places and transitions to be
+	 * measured.
+	 */
+	public static CommonModel convertGSPN(File file, File index)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		return convertGSPN(file, index, Metrics.NONE);
+	}
+
+	/**
+	 * Reads a PNML file representing a GSPN and returns its model, recording
+	 * the cost of each phase in the metrics.
+	 */
+	public static CommonModel convertGSPN(File file, File index, Metrics metrics)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		PnmlConverter converter = new PnmlConverter(metrics);
+		converter.readGSPN(file, index);
+		return converter.model;
+	}
+
+	/**
+	 * Reads a PNML file whose nets each represent a GSPN and returns the
+	 * model of every net, in document order. The file is imported once and
+	 * the nets are built concurrently. The index file, if not null, applies
+	 * to every net.
+	 */
+	public static List<CommonModel> convertGSPNNets(File file, File index)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		return convertGSPNNets(file, index, Metrics.NONE);
+	}
+
+	/**
+	 * Reads the nets of a PNML file like convertGSPNNets, recording the cost
+	 * of the import and of building all the nets in the metrics.
+	 */
+	public static List<CommonModel> convertGSPNNets(File file, final File index, Metrics metrics)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		metrics.begin("import");
+		PetriNetDocHLAPI doc = importDocument(file);
+		metrics.begin("nets");
+		List<Callable<CommonModel>> tasks = new ArrayList<Callable<CommonModel>>();
+		for (final PetriNetHLAPI net : doc.getNetsHLAPI()) {
+			tasks.add(new Callable<CommonModel>() {
+				public CommonModel call() throws SAXException, IOException {
+					PnmlConverter converter = new PnmlConverter();
+					converter.buildGSPN(net);
+					converter.connectGSPN();
+					converter.addMeasures(index, converter.classKey);
+					return converter.model;
+				}
+			});
+		}
+		List<CommonModel> models = convertNets(tasks);
+		metrics.end();
+		return models;
+	}
+
+	/**
+	 * Reads a PNML stream representing a GSPN and returns its model, like
+	 * convertGSPN but in a single StAX pass that feeds the model as places,
+	 * transitions and arcs are read, without building the PNML object graph.
+	 * Stations are added in document order. The stream is not closed.
+	 */
+	public static CommonModel convertGSPNStream(InputStream in, File index) throws XMLStreamException, IOException {
+		return convertGSPNStream(in, index, Metrics.NONE);
+	}
+
+	/**
+	 * Reads a PNML stream representing a GSPN like convertGSPNStream,
+	 * recording the cost of each phase in the metrics.
+	 */
+	public static CommonModel convertGSPNStream(InputStream in, File index, Metrics metrics)
+			throws XMLStreamException, IOException {
+		PnmlConverter converter = new PnmlConverter(metrics);
+		converter.readGSPNStream(in, index);
+		return converter.model;
+	}
+
+	/**
+	 * Reads a PNML stream representing a GSPN like convertGSPNStream, and
+	 * reduces the net with GspnReducer before adding it to the model. The
+	 * places and transitions listed in the index file are kept, so that
+	 * their measures are preserved. The reduction achieved is reported on
+	 * the standard error. The stream is not closed.
+	 */
+	public static CommonModel convertGSPNReduced(InputStream in, File index) throws XMLStreamException, IOException {
+		return convertGSPNReduced(in, index, Metrics.NONE);
+	}
+
+	/**
+	 * Reads and reduces a PNML stream representing a GSPN like
+	 * convertGSPNReduced, recording the cost of each phase in the metrics.
+	 */
+	public static CommonModel convertGSPNReduced(InputStream in, File index, Metrics metrics)
+			throws XMLStreamException, IOException {
+		PnmlConverter converter = new PnmlConverter(metrics);
+		converter.readGSPNReduced(in, index);
+		return converter.model;
+	}
+
+	/**
+	 * Reads a PNML stream representing an SWN and returns its model, with a
+	 * job class for each colour combination the net can reach and a
+	 * transition mode for each binding under which a transition can fire,
+	 * as found by SwnUnfolder. Places never reached and transitions that
+	 * can never fire are left out. The index file, if not null, lists the
+	 * ids of the places and transitions to be measured. The size of the
+	 * unfolding is reported on the standard error. The stream is not closed.
+	 */
+	public static CommonModel convertSWN(InputStream in, File index) throws XMLStreamException, IOException {
+		return convertSWN(in, index, Metrics.NONE);
+	}
+
+	/**
+	 * Reads a PNML stream representing an SWN like convertSWN, recording the
+	 * cost of each phase in the metrics.
+	 */
+	public static CommonModel convertSWN(InputStream in, File index, Metrics metrics)
+			throws XMLStreamException, IOException {
+		PnmlConverter converter = new PnmlConverter(metrics);
+		converter.readSWN(in, index);
+		return converter.model;
+	}
+
+	/**
+	 * Reads a PNML file representing a HadoopCap SWN and returns its model.
+	 */
+	public static CommonModel convertHadoopCap(File file)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		return convertHadoopCap(file, false);
+	}
+
+	/**
+	 * Reads a PNML file representing a HadoopCap SWN and returns its model.
+	 * If reduce is true, an approximation of the model is returned instead:
+	 * resource colours with the same tokens and job profiles are merged into
+	 * a single resource class, so that the resource transitions get one mode
+	 * per job and resource class instead of one per job and resource colour,
+	 * and each job has its affinity priority on all the colours merged with
+	 * its own. The reduction achieved is reported on the standard error.
+	 */
+	public static CommonModel convertHadoopCap(File file, boolean reduce)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		return convertHadoopCap(file, reduce, Metrics.NONE);
+	}
+
+	/**
+	 * Reads a PNML file representing a HadoopCap SWN like convertHadoopCap,
+	 * recording the cost of each phase in the metrics.
+	 */
+	public static CommonModel convertHadoopCap(File file, boolean reduce, Metrics metrics)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		PnmlConverter converter = new PnmlConverter(metrics);
+		converter.readHadoopCap(file, reduce);
+		return converter.model;
+	}
+
+	/**
+	 * Reads a PNML file whose nets each represent a HadoopCap SWN and returns
+	 * the model of every net, in document order, reducing them as
+	 * convertHadoopCap does if reduce is true. The file is imported once and
+	 * the nets are built concurrently.
+	 */
+	public static List<CommonModel> convertHadoopCapNets(File file, boolean reduce)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		return convertHadoopCapNets(file, reduce, Metrics.NONE);
+	}
+
+	/**
+	 * Reads the nets of a PNML file like convertHadoopCapNets, recording the
+	 * cost of the import and of building all the nets in the metrics.
+	 */
+	public static List<CommonModel> convertHadoopCapNets(File file, final boolean reduce, Metrics metrics)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		metrics.begin("import");
+		PetriNetDocHLAPI doc = importDocument(file);
+		metrics.begin("nets");
+		List<Callable<CommonModel>> tasks = new ArrayList<Callable<CommonModel>>();
+		for (final PetriNetHLAPI net : doc.getNetsHLAPI()) {
+			tasks.add(new Callable<CommonModel>() {
+				public CommonModel call() throws SAXException, IOException {
+					PnmlConverter converter = new PnmlConverter();
+					TemplateCache.load("HadoopCap.jsimg", converter.model);
+					converter.buildHadoopCap(net, reduce);
+					return converter.model;
+				}
+			});
+		}
+		List<CommonModel> models = convertNets(tasks);
+		metrics.end();
+		return models;
+	}
+
+	/**
+	 * Runs the conversions of the nets of a document on the nets pool and
+	 * returns their models in the order of the tasks.
+	 */
+	private static List<CommonModel> convertNets(List<Callable<CommonModel>> tasks) throws SAXException, IOException {
+		List<Future<CommonModel>> futures = new ArrayList<Future<CommonModel>>();
+		for (Callable<CommonModel> task : tasks) {
+			futures.add(getNetsPool().submit(task));
+		}
+		List<CommonModel> models = new ArrayList<CommonModel>(tasks.size());
+		try {
+			for (Future<CommonModel> f : futures) {
+				models.add(f.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			for (Future<CommonModel> f : futures) {
+				f.cancel(true);
+			}
+			if (e.getCause() instanceof SAXException) {
+				throw (SAXException) e.getCause();
+			} else if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		return models;
+	}
+
+	/**
+	 * The PNML framework keeps its documents in a process-wide repository, so
+	 * imports are serialised while the rest of the conversion is not. It can
+	 * only read files, so a compressed file is decompressed to a temporary
+	 * file first.
+	 */
+	static PetriNetDocHLAPI importDocument(File file) throws ImportException, InvalidIDException, IOException {
+		File source = Compression.decompressToTempFile(file);
+		try {
+			synchronized (IMPORT_LOCK) {
+				return (PetriNetDocHLAPI) PNMLUtils.importPnmlDocument(source, false);
+			}
+		} finally {
+			if (source != file) {
+				source.delete();
+			}
+		}
+	}
+
+	private void readGSPN(File file, File index) throws ImportException, InvalidIDException, SAXException, IOException {
+		metrics.begin("import");
+		PetriNetDocHLAPI doc = importDocument(file);
+		buildGSPN(doc);
+		metrics.begin("connect");
+		connectGSPN();
+		metrics.begin("measures");
+		addMeasures(index, classKey);
+		metrics.end();
+	}
+
+	/**
+	 * Adds the class, the places and the transitions of the first net of the
+	 * document to the model. The phases of a conversion are also run one by
+	 * one by the benchmarks.
+	 */
+	void buildGSPN(PetriNetDocHLAPI doc) throws SAXException, IOException {
+		List<PetriNetHLAPI> nets = doc.getNetsHLAPI();
+		if (nets.size() > 1) {
+			System.err.println("PNML: only the first of " + nets.size() + " nets is converted");
+		}
+		buildGSPN(nets.get(0));
+	}
+
+	/**
+	 * Adds the class, the places and the transitions of all the pages of the
+	 * net to the model.
+	 */
+	private void buildGSPN(PetriNetHLAPI pnmlNet) throws SAXException, IOException {
+		metrics.begin("build");
+		net = PnmlNet.flatten(pnmlNet);
+		List<PlaceHLAPI> places = net.getPlaces();
+		List<TransitionHLAPI> transitions = net.getTransitions();
+		arcs = net.getArcs();
+
+		classKey = model.addClass("Token", CommonConstants.CLASS_TYPE_CLOSED, Integer.valueOf(0),
+				Integer.valueOf(0), null);
+		int population = 0;
+		for (PlaceHLAPI p : places) {
+			population += (p.getInitialMarking() != null) ? p.getInitialMarking().getText().intValue() : 0;
+		}
+		model.setClassPopulation(classKey, Integer.valueOf(population));
+
+		List<List<ToolInfoHLAPI>> specifics = new ArrayList<List<ToolInfoHLAPI>>();
+		for (PlaceHLAPI p : places) {
+			specifics.add(p.getToolspecificsHLAPI());
+		}
+		for (TransitionHLAPI t : transitions) {
+			specifics.add(t.getToolspecificsHLAPI());
+		}
+		for (ArcHLAPI a : arcs) {
+			specifics.add(a.getToolspecificsHLAPI());
+		}
+		metrics.begin("specifics");
+		List<List<String[]>> values = parseSpecificValues(specifics);
+		metrics.begin("build");
+		int next = 0;
+
+		for (PlaceHLAPI p : places) {
+			PnmlNodeEvent event = new PnmlNodeEvent();
+			event.begin();
+			String id = p.getId();
+			Object key = model.addStation(id, CommonConstants.STATION_TYPE_PLACE);
+			registry.addStation(id, key, CommonConstants.STATION_TYPE_PLACE);
+
+			int marking = (p.getInitialMarking() != null) ? p.getInitialMarking().getText().intValue() : 0;
+			model.setPreloadedJobs(key, classKey, Integer.valueOf(marking));
+
+			List<String[]> placeValues = values.get(next++);
+			for (String[] value : placeValues) {
+				parseSpecificPlaceParameters(value, model, key);
+			}
+			commit(event, id, "place", placeValues.size());
+		}
+
+		for (TransitionHLAPI t : transitions) {
+			PnmlNodeEvent event = new PnmlNodeEvent();
+			event.begin();
+			String id = t.getId();
+			Object key = addTransition(id);
+
+			List<String[]> transitionValues = values.get(next++);
+			for (String[] value : transitionValues) {
+				parseSpecificTransitionParameters(value, model, key);
+			}
+			commit(event, id, "transition", transitionValues.size());
+		}
+		arcSpecifics = values.subList(next, values.size());
+		model.setClassRefStation(classKey, getReferenceStation());
+	}
+
+	/**
+	 * Connects the places and transitions added by buildGSPN with the arcs
+	 * of the net.
+	 */
+	void connectGSPN() {
+		int next = 0;
+		for (ArcHLAPI a : arcs) {
+			PnmlNodeEvent event = new PnmlNodeEvent();
+			event.begin();
+			List<String[]> values = arcSpecifics.get(next++);
+			Object sourceKey = registry.getStation(net.resolve(a.getSourceHLAPI().getId()));
+			Object targetKey = registry.getStation(net.resolve(a.getTargetHLAPI().getId()));
+			if (sourceKey != null && targetKey != null) {
+				model.setConnected(sourceKey, targetKey, true);
+
+				isNormalArc = true;
+				for (String[] value : values) {
+					parseSpecificArcParameters(value);
+				}
+
+				int inscription = (a.getInscriptionHLAPI() != null) ? a.getInscriptionHLAPI().getText().intValue() : 1;
+				addArc(sourceKey, targetKey, classKey, inscription, isNormalArc);
+			}
+			commit(event, a.getId(), "arc", values.size());
+		}
+	}
+
+	CommonModel getModel() {
+		return model;
+	}
+
+	private void readGSPNStream(InputStream stream, File index) throws XMLStreamException, IOException {
+		XMLInputFactory factory = newInputFactory();
+		metrics.begin("parse");
+		XMLStreamReader reader = factory.createXMLStreamReader(stream);
+
+		classKey = model.addClass("Token", CommonConstants.CLASS_TYPE_CLOSED, Integer.valueOf(0),
+				Integer.valueOf(0), null);
+		int population = 0;
+		List<NetElement> pendingArcs = new ArrayList<NetElement>();
+		Map<String, String> references = new HashMap<String, String>();
+		int nets = 0;
+		try {
+			while (reader.hasNext() && nets < 2) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String tag = reader.getLocalName();
+				if (tag.equals("net")) {
+					nets++;
+				} else if (tag.equals("place")) {
+					PnmlNodeEvent event = new PnmlNodeEvent();
+					event.begin();
+					NetElement p = readNetElement(reader);
+					Object key = model.addStation(p.id, CommonConstants.STATION_TYPE_PLACE);
+					registry.addStation(p.id, key, CommonConstants.STATION_TYPE_PLACE);
+
+					int marking = (p.value != null) ? p.value.intValue() : 0;
+					model.setPreloadedJobs(key, classKey, Integer.valueOf(marking));
+					population += marking;
+					commit(event, p.id, tag, p.specifics.size());
+				} else if (tag.equals("transition")) {
+					PnmlNodeEvent event = new PnmlNodeEvent();
+					event.begin();
+					NetElement t = readNetElement(reader);
+					Object key = addTransition(t.id);
+
+					for (String[] specific : t.specifics) {
+						setTransitionParameter(key, specific[0], specific[1]);
+					}
+					commit(event, t.id, tag, t.specifics.size());
+				} else if (tag.equals("arc")) {
+					PnmlNodeEvent event = new PnmlNodeEvent();
+					event.begin();
+					NetElement a = readNetElement(reader);
+					if (registry.containsStation(a.source) && registry.containsStation(a.target)) {
+						addArc(a, classKey);
+					} else {
+						pendingArcs.add(a);
+					}
+					commit(event, a.id, tag, a.specifics.size());
+				} else if (tag.equals("referencePlace") || tag.equals("referenceTransition")) {
+					references.put(reader.getAttributeValue(null, "id"), reader.getAttributeValue(null, "ref"));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		if (nets > 1) {
+			System.err.println("PNML: only the first net is converted");
+		}
+
+		metrics.begin("connect");
+		for (NetElement a : pendingArcs) {
+			a.source = PnmlNet.resolve(references, a.source);
+			a.target = PnmlNet.resolve(references, a.target);
+			if (registry.containsStation(a.source) && registry.containsStation(a.target)) {
+				addArc(a, classKey);
+			}
+		}
+
+		model.setClassPopulation(classKey, Integer.valueOf(population));
+		model.setClassRefStation(classKey, getReferenceStation());
+
+		metrics.begin("measures");
+		addMeasures(index, classKey);
+		metrics.end();
+	}
+
+	private void readGSPNReduced(InputStream stream, File index) throws XMLStreamException, IOException {
+		metrics.begin("parse");
+		GspnNet net = readGSPNNet(stream);
+
+		metrics.begin("reduce");
+		int places = net.getPlaces().size();
+		int transitions = net.getTransitions().size();
+		GspnReducer reducer = GspnReducer.reduce(net, readIndex(index));
+
+		metrics.begin("build");
+		classKey = model.addClass("Token", CommonConstants.CLASS_TYPE_CLOSED, Integer.valueOf(0),
+				Integer.valueOf(0), null);
+		int population = 0;
+		for (GspnNet.Place p : net.getPlaces()) {
+			if (!p.removed) {
+				Object key = model.addStation(p.id, CommonConstants.STATION_TYPE_PLACE);
+				registry.addStation(p.id, key, CommonConstants.STATION_TYPE_PLACE);
+				model.setPreloadedJobs(key, classKey, Integer.valueOf(p.marking));
+				population += p.marking;
+			}
+		}
+		for (GspnNet.Transition t : net.getTransitions()) {
+			if (!t.removed) {
+				Object key = addTransition(t.id);
+				for (String[] specific : t.specifics) {
+					setTransitionParameter(key, specific[0], specific[1]);
+				}
+			}
+		}
+		for (GspnNet.Transition t : net.getTransitions()) {
+			Object transitionKey = registry.getStation(t.id);
+			for (GspnNet.Arc a : t.inputs) {
+				Object placeKey = registry.getStation(a.place.id);
+				model.setConnected(placeKey, transitionKey, true);
+				addArc(placeKey, transitionKey, classKey, a.weight, true);
+			}
+			for (GspnNet.Arc a : t.inhibitors) {
+				Object placeKey = registry.getStation(a.place.id);
+				model.setConnected(placeKey, transitionKey, true);
+				addArc(placeKey, transitionKey, classKey, a.weight, false);
+			}
+			for (GspnNet.Arc a : t.outputs) {
+				Object placeKey = registry.getStation(a.place.id);
+				model.setConnected(transitionKey, placeKey, true);
+				addArc(transitionKey, placeKey, classKey, a.weight, true);
+			}
+		}
+		model.setClassPopulation(classKey, Integer.valueOf(population));
+		model.setClassRefStation(classKey, getReferenceStation());
+
+		metrics.begin("measures");
+		addMeasures(index, classKey);
+		metrics.end();
+
+		int removedPlaces = reducer.getRemovedPlaces();
+		int removedTransitions = reducer.getRemovedTransitions();
+		System.err.println("GSPN: " + (removedPlaces + removedTransitions) + " stations removed, places " + places
+				+ " -> " + (places - removedPlaces) + ", transitions " + transitions + " -> "
+				+ (transitions - removedTransitions) + ", parallel arcs merged " + reducer.getMergedArcs());
+	}
+
+	/**
+	 * Reads the first net of a GSPN PNML stream as a GspnNet, in a single
+	 * streaming pass, for the gspn-reduced mode and GspnReductionCheck.
+	 */
+	static GspnNet readGSPNNet(InputStream stream) throws XMLStreamException {
+		XMLInputFactory factory = newInputFactory();
+		XMLStreamReader reader = factory.createXMLStreamReader(stream);
+
+		GspnNet net = new GspnNet();
+		List<NetElement> arcs = new ArrayList<NetElement>();
+		Map<String, String> references = new HashMap<String, String>();
+		int nets = 0;
+		try {
+			while (reader.hasNext() && nets < 2) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String tag = reader.getLocalName();
+				if (tag.equals("net")) {
+					nets++;
+				} else if (tag.equals("place") || tag.equals("transition") || tag.equals("arc")) {
+					PnmlNodeEvent event = new PnmlNodeEvent();
+					event.begin();
+					NetElement elem = readNetElement(reader);
+					if (tag.equals("place")) {
+						net.addPlace(elem.id, (elem.value != null) ? elem.value.intValue() : 0);
+					} else if (tag.equals("transition")) {
+						net.addTransition(elem.id, elem.specifics, isImmediate(elem.specifics),
+								getImmediatePriority(elem.specifics), isInfiniteServer(elem.specifics));
+					} else {
+						arcs.add(elem);
+					}
+					commit(event, elem.id, tag, elem.specifics.size());
+				} else if (tag.equals("referencePlace") || tag.equals("referenceTransition")) {
+					references.put(reader.getAttributeValue(null, "id"), reader.getAttributeValue(null, "ref"));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		if (nets > 1) {
+			System.err.println("PNML: only the first net is converted");
+		}
+		for (NetElement a : arcs) {
+			net.addArc(PnmlNet.resolve(references, a.source), PnmlNet.resolve(references, a.target),
+					(a.value != null) ? a.value.intValue() : 1, isInhibitor(a.specifics));
+		}
+		return net;
+	}
+
+	private void readSWN(InputStream stream, File index) throws XMLStreamException, IOException {
+		XMLInputFactory factory = newInputFactory();
+		metrics.begin("parse");
+		XMLStreamReader reader = factory.createXMLStreamReader(stream);
+
+		SwnNet net = new SwnNet();
+		List<NetElement> arcs = new ArrayList<NetElement>();
+		Map<String, String> references = new HashMap<String, String>();
+		int nets = 0;
+		try {
+			while (reader.hasNext() && nets < 2) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				String tag = reader.getLocalName();
+				if (tag.equals("net")) {
+					nets++;
+				} else if (tag.equals("place") || tag.equals("transition") || tag.equals("arc")) {
+					PnmlNodeEvent event = new PnmlNodeEvent();
+					event.begin();
+					NetElement elem = readNetElement(reader);
+					// The colours of a class are those of the markings, the
+					// guards and the definitions of the net, not of the arcs
+					if (!tag.equals("arc")) {
+						for (SwnNet.Term term : elem.colours) {
+							if (term.index != SwnNet.VARIABLE) {
+								net.addColour(term.colourClass, term.index);
+							}
+						}
+					}
+					if (tag.equals("place")) {
+						net.addPlace(elem.id, elem.colours, (elem.value != null) ? elem.value.intValue() : 0);
+					} else if (tag.equals("transition")) {
+						net.addTransition(elem.id, elem.colours, elem.specifics);
+					} else {
+						arcs.add(elem);
+					}
+					commit(event, elem.id, tag, elem.specifics.size());
+				} else if (tag.equals("toolspecific")) {
+					// Colour definitions of the net
+					SwnNet.Term term = getColourTerm(readSpecificValues(reader));
+					if (term != null && term.index != SwnNet.VARIABLE) {
+						net.addColour(term.colourClass, term.index);
+					}
+				} else if (tag.equals("referencePlace") || tag.equals("referenceTransition")) {
+					references.put(reader.getAttributeValue(null, "id"), reader.getAttributeValue(null, "ref"));
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		if (nets > 1) {
+			System.err.println("PNML: only the first net is converted");
+		}
+		for (NetElement a : arcs) {
+			net.addArc(PnmlNet.resolve(references, a.source), PnmlNet.resolve(references, a.target),
+					getArcColours(net, a), (a.value != null) ? a.value.intValue() : 1, isInhibitor(a.specifics));
+		}
+
+		metrics.begin("unfold");
+		SwnUnfolder unfolder = SwnUnfolder.unfold(net);
+
+		metrics.begin("build");
+		Map<Map<String, Integer>, Object> classes = new LinkedHashMap<Map<String, Integer>, Object>();
+		for (SwnNet.Place p : net.getPlaces()) {
+			if (unfolder.getCombinations(p).isEmpty()) {
+				continue;
+			}
+			Object key = model.addStation(p.id, CommonConstants.STATION_TYPE_PLACE);
+			registry.addStation(p.id, key, CommonConstants.STATION_TYPE_PLACE);
+			for (Map<String, Integer> combination : unfolder.getCombinations(p)) {
+				Object combinationKey = classes.get(combination);
+				if (combinationKey == null) {
+					combinationKey = model.addClass(SwnUnfolder.getName(combination), CommonConstants.CLASS_TYPE_CLOSED,
+							Integer.valueOf(0), Integer.valueOf(0), null);
+					model.setClassRefStation(combinationKey, key);
+					classes.put(combination, combinationKey);
+				}
+			}
+		}
+
+		// Each class is referred to the first place it is found in, or the
+		// first place it is initially marked in if any.
+		Set<Object> marked = new HashSet<Object>();
+		for (SwnNet.Place p : net.getPlaces()) {
+			for (SwnUnfolder.Token token : unfolder.expand(p.terms, p.marking,
+					Collections.<String, Integer> emptyMap())) {
+				if (token.count > 0) {
+					Object key = registry.getStation(p.id);
+					Object combinationKey = classes.get(token.colours);
+					model.setPreloadedJobs(key, combinationKey, Integer.valueOf(
+							model.getPreloadedJobs(key, combinationKey).intValue() + token.count));
+					model.setClassPopulation(combinationKey, Integer.valueOf(
+							model.getClassPopulation(combinationKey).intValue() + token.count));
+					if (marked.add(combinationKey)) {
+						model.setClassRefStation(combinationKey, key);
+					}
+				}
+			}
+		}
+
+		int live = 0;
+		int modes = 0;
+		for (SwnNet.Transition t : net.getTransitions()) {
+			List<Map<String, Integer>> bindings = new ArrayList<Map<String, Integer>>();
+			for (Map<String, Integer> binding : unfolder.getBindings(t)) {
+				if (hasInputClasses(unfolder, classes, t, binding)) {
+					bindings.add(binding);
+				}
+			}
+			if (bindings.isEmpty()) {
+				continue;
+			}
+			live++;
+			Object key = addTransition(t.id);
+			int mode = 0;
+			for (Map<String, Integer> binding : bindings) {
+				if (!binding.isEmpty()) {
+					if (mode == 0) {
+						model.deleteTransitionMode(key, 0);
+					}
+					model.addTransitionMode(key, SwnUnfolder.getName(binding));
+					model.setNumberOfServers(key, mode, Integer.valueOf(1));
+					model.setFiringTimeDistribution(key, mode, new ZeroStrategy());
+					model.setFiringPriority(key, mode, Integer.valueOf(0));
+					model.setFiringWeight(key, mode, Double.valueOf(1.0));
+				}
+				for (String[] specific : t.specifics) {
+					setTransitionParameter(key, mode, specific[0], specific[1]);
+				}
+				connectSWN(unfolder, classes, t, key, mode, binding);
+				mode++;
+			}
+			modes += mode;
+		}
+
+		metrics.begin("measures");
+		addMeasures(index, unfolder, net, classes);
+		metrics.end();
+
+		System.err.println("SWN: " + classes.size() + " classes, transitions " + live + " of "
+				+ net.getTransitions().size() + " live, modes " + modes + " of " + unfolder.getProductModes());
+	}
+
+	/**
+	 * Returns the colour terms of an arc, checked against the colours of
+	 * their classes. The DICE exporter writes the arcs of the place of an
+	 * id_N class, which has a single colour, with the index N of the job
+	 * instead of the index of that colour, so such a term is given the
+	 * colour of the class. Any other colour the class does not have is an
+	 * error, as the arc would never move a token.
+	 */
+	private static List<SwnNet.Term> getArcColours(SwnNet net, NetElement a) throws IOException {
+		List<SwnNet.Term> terms = new ArrayList<SwnNet.Term>();
+		for (SwnNet.Term term : a.colours) {
+			List<Integer> colours = net.getColours(term.colourClass);
+			if (term.index == SwnNet.VARIABLE || colours.contains(Integer.valueOf(term.index))) {
+				terms.add(term);
+			} else if (colours.size() == 1 && term.colourClass.startsWith("id_" + term.index + "_")) {
+				terms.add(new SwnNet.Term(term.colourClass, colours.get(0).intValue(), term.count));
+			} else {
+				throw new IOException("SWN: arc " + a.id + " refers to colour " + term.index + " of class "
+						+ term.colourClass + ", whose colours are " + colours);
+			}
+		}
+		return terms;
+	}
+
+	/**
+	 * Sets the enabling and inhibiting conditions and the firing outcomes of
+	 * a mode of a transition from the arcs of the transition under the
+	 * binding of the mode. Arcs of the same place and class add up. Every
+	 * input of a mode is of a place and class of the model (see
+	 * hasInputClasses), while inhibitor arcs of places or classes never
+	 * reached are left out, as they never inhibit.
+	 */
+	private void connectSWN(SwnUnfolder unfolder, Map<Map<String, Integer>, Object> classes, SwnNet.Transition t,
+			Object transitionKey, int mode, Map<String, Integer> binding) {
+		Map<Object, Map<Object, Integer>> enabling = new LinkedHashMap<Object, Map<Object, Integer>>();
+		Map<Object, Map<Object, Integer>> inhibiting = new LinkedHashMap<Object, Map<Object, Integer>>();
+		Map<Object, Map<Object, Integer>> outcomes = new LinkedHashMap<Object, Map<Object, Integer>>();
+		for (SwnNet.Arc a : t.inputs) {
+			addTokens(unfolder, classes, a, binding, enabling);
+		}
+		for (SwnNet.Arc a : t.inhibitors) {
+			addTokens(unfolder, classes, a, binding, inhibiting);
+		}
+		for (SwnNet.Arc a : t.outputs) {
+			addTokens(unfolder, classes, a, binding, outcomes);
+		}
+
+		for (Map.Entry<Object, Map<Object, Integer>> place : enabling.entrySet()) {
+			model.setConnected(place.getKey(), transitionKey, true);
+			for (Map.Entry<Object, Integer> c : place.getValue().entrySet()) {
+				model.setEnablingCondition(transitionKey, mode, place.getKey(), c.getKey(), c.getValue());
+			}
+		}
+		for (Map.Entry<Object, Map<Object, Integer>> place : inhibiting.entrySet()) {
+			model.setConnected(place.getKey(), transitionKey, true);
+			for (Map.Entry<Object, Integer> c : place.getValue().entrySet()) {
+				model.setInhibitingCondition(transitionKey, mode, place.getKey(), c.getKey(), c.getValue());
+			}
+		}
+		for (Map.Entry<Object, Map<Object, Integer>> place : outcomes.entrySet()) {
+			model.setConnected(transitionKey, place.getKey(), true);
+			for (Map.Entry<Object, Integer> c : place.getValue().entrySet()) {
+				model.setFiringOutcome(transitionKey, mode, place.getKey(), c.getKey(), c.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Returns whether every token the input arcs of the transition take
+	 * under the binding is of a class of the model in a place of the model.
+	 * A binding taking a token no place can hold could never fire, so it is
+	 * dead and gets no mode, rather than a mode without that input.
+	 */
+	private boolean hasInputClasses(SwnUnfolder unfolder, Map<Map<String, Integer>, Object> classes,
+			SwnNet.Transition t, Map<String, Integer> binding) {
+		for (SwnNet.Arc a : t.inputs) {
+			for (SwnUnfolder.Token token : unfolder.expand(a.terms, a.weight, binding)) {
+				if (token.count > 0 && (registry.getStation(a.place.id) == null || !classes.containsKey(token.colours))) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private void addTokens(SwnUnfolder unfolder, Map<Map<String, Integer>, Object> classes, SwnNet.Arc a,
+			Map<String, Integer> binding, Map<Object, Map<Object, Integer>> tokens) {
+		Object placeKey = registry.getStation(a.place.id);
+		if (placeKey == null) {
+			return;
+		}
+		for (SwnUnfolder.Token token : unfolder.expand(a.terms, a.weight, binding)) {
+			Object combinationKey = classes.get(token.colours);
+			if (token.count <= 0 || combinationKey == null) {
+				continue;
+			}
+			Map<Object, Integer> counts = tokens.get(placeKey);
+			if (counts == null) {
+				counts = new LinkedHashMap<Object, Integer>();
+				tokens.put(placeKey, counts);
+			}
+			Integer count = counts.get(combinationKey);
+			counts.put(combinationKey, Integer.valueOf(((count != null) ? count.intValue() : 0) + token.count));
+		}
+	}
+
+	private static XMLInputFactory newInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		return factory;
+	}
+
+	private static boolean isImmediate(List<String[]> specifics) {
+		for (String[] specific : specifics) {
+			if (PNML_DICE_U_TKIND_EXPONENTIAL.equals(specific[0])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int getImmediatePriority(List<String[]> specifics) {
+		for (String[] specific : specifics) {
+			if (PNML_DICE_U_TKIND_IMMEDIATE_PRIORITY.equals(specific[0])) {
+				return Integer.parseInt(specific[1]);
+			}
+		}
+		return 0;
+	}
+
+	private static boolean isInfiniteServer(List<String[]> specifics) {
+		for (String[] specific : specifics) {
+			if (PNML_DICE_U_TSERV_INFINITE.equals(specific[0])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isInhibitor(List<String[]> specifics) {
+		for (String[] specific : specifics) {
+			if (PNML_DICE_U_AKIND_INHIBITOR.equals(specific[0])) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the ids listed in the index file, one per line, or none if
+	 * there is no index file.
+	 */
+	static Set<String> readIndex(File index) throws IOException {
+		Set<String> ids = new HashSet<String>();
+		if (index != null) {
+			BufferedReader reader = new BufferedReader(new FileReader(index));
+			try {
+				String id;
+				while ((id = reader.readLine()) != null) {
+					ids.add(id);
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * Reads the place, transition or arc the reader is positioned on and
+	 * leaves the reader on its end tag. Only the first value of each
+	 * toolspecific is kept, as for the toolspecifics read through the PNML
+	 * framework.
+	 */
+	private static NetElement readNetElement(XMLStreamReader reader) throws XMLStreamException {
+		NetElement elem = new NetElement();
+		elem.id = reader.getAttributeValue(null, "id");
+		elem.source = reader.getAttributeValue(null, "source");
+		elem.target = reader.getAttributeValue(null, "target");
+		boolean inValue = false;
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+				String tag = reader.getLocalName();
+				if (tag.equals("initialMarking") || tag.equals("inscription")) {
+					inValue = false;
+				}
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				String tag = reader.getLocalName();
+				if (inValue && tag.equals("text")) {
+					elem.value = Integer.valueOf(reader.getElementText().trim());
+				} else if (tag.equals("toolspecific")) {
+					List<String[]> values = readSpecificValues(reader);
+					if (!values.isEmpty()) {
+						elem.specifics.add(values.get(0));
+						SwnNet.Term term = getColourTerm(values);
+						if (term != null) {
+							elem.colours.add(term);
+						}
+					}
+				} else {
+					depth++;
+					if (tag.equals("initialMarking") || tag.equals("inscription")) {
+						inValue = true;
+					}
+				}
+			}
+		}
+		return elem;
+	}
+
+	/**
+	 * Reads the values of the toolspecific the reader is positioned on, as
+	 * pairs of grammar and text, and leaves the reader on its end tag.
+	 */
+	private static List<String[]> readSpecificValues(XMLStreamReader reader) throws XMLStreamException {
+		List<String[]> values = new ArrayList<String[]>();
+		int depth = 1;
+		while (depth > 0) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			} else if (event == XMLStreamConstants.START_ELEMENT) {
+				if (reader.getLocalName().equals(PNML_DICE_E_VALUE)) {
+					String grammar = reader.getAttributeValue(null, PNML_DICE_A_VALUE_GRAMMAR);
+					values.add(new String[] { (grammar != null) ? grammar : "", reader.getElementText() });
+				} else {
+					depth++;
+				}
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the colour term of a colour toolspecific, given as the index
+	 * of the colour, its colour class and a count, or null if the values are
+	 * not those of a colour.
+	 */
+	private static SwnNet.Term getColourTerm(List<String[]> values) {
+		if (values.size() != 3) {
+			return null;
+		}
+		for (String[] value : values) {
+			if (!PNML_DICE_U_COLOR_COLOR.equals(value[0])) {
+				return null;
+			}
+		}
+		try {
+			return new SwnNet.Term(values.get(1)[1].trim(), Integer.parseInt(values.get(0)[1].trim()),
+					Integer.parseInt(values.get(2)[1].trim()));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	private Object addTransition(String id) {
+		Object key = model.addStation(id, CommonConstants.STATION_TYPE_TRANSITION);
+		registry.addStation(id, key, CommonConstants.STATION_TYPE_TRANSITION);
+		model.setNumberOfServers(key, 0, Integer.valueOf(1));
+		model.setFiringTimeDistribution(key, 0, new ZeroStrategy());
+		model.setFiringPriority(key, 0, Integer.valueOf(0));
+		model.setFiringWeight(key, 0, Double.valueOf(1.0));
+		return key;
+	}
+
+	private void addArc(NetElement a, Object classKey) {
+		Object sourceKey = registry.getStation(a.source);
+		Object targetKey = registry.getStation(a.target);
+		model.setConnected(sourceKey, targetKey, true);
+
+		int inscription = (a.value != null) ? a.value.intValue() : 1;
+		addArc(sourceKey, targetKey, classKey, inscription, !isInhibitor(a.specifics));
+	}
+
+	private void addArc(Object sourceKey, Object targetKey, Object classKey, int inscription, boolean isNormal) {
+		if (CommonConstants.STATION_TYPE_TRANSITION.equals(registry.getStationType(targetKey))) {
+			if (isNormal) {
+				model.setEnablingCondition(targetKey, 0, sourceKey, classKey, Integer.valueOf(inscription));
+			} else {
+				model.setInhibitingCondition(targetKey, 0, sourceKey, classKey, Integer.valueOf(inscription));
+			}
+		} else {
+			model.setFiringOutcome(sourceKey, 0, targetKey, classKey, Integer.valueOf(inscription));
+		}
+	}
+
+	private void addMeasures(File index, Object classKey) throws IOException {
+		Object nodeKey;
+		if (index != null) {
+			BufferedReader reader = new BufferedReader(new FileReader(index));
+			String id = reader.readLine();
+			while (id != null) {
+				nodeKey = registry.getStation(id);
+				String type = registry.getStationType(nodeKey);
+				if (CommonConstants.STATION_TYPE_PLACE.equals(type)) {
+					model.addMeasure(SimulationDefinition.MEASURE_QL, nodeKey, classKey);
+				}
+				if (CommonConstants.STATION_TYPE_TRANSITION.equals(type)) {
+					String modeName = model.getTransitionModeName(nodeKey, 0);
+					model.addMeasure(SimulationDefinition.MEASURE_FX, nodeKey, modeName);
+				}
+				id = reader.readLine();
+			}
+			reader.close();
+		}
+		if (model.getMeasureKeys().isEmpty()) {
+			for (Object pk : registry.getStations(CommonConstants.STATION_TYPE_PLACE)) {
+				model.addMeasure(SimulationDefinition.MEASURE_QL, pk, classKey);
+			}
+			for (Object tk : registry.getStations(CommonConstants.STATION_TYPE_TRANSITION)) {
+				String modeName = model.getTransitionModeName(tk, 0);
+				model.addMeasure(SimulationDefinition.MEASURE_FX, tk, modeName);
+			}
+		}
+	}
+
+	/**
+	 * Adds the measures of an SWN: the queue length of each class found in
+	 * each place and the firing throughput of each mode of each transition,
+	 * for the places and transitions listed in the index file, or for all
+	 * of them if it lists none of them.
+	 */
+	private void addMeasures(File index, SwnUnfolder unfolder, SwnNet net, Map<Map<String, Integer>, Object> classes)
+			throws IOException {
+		Set<String> ids = readIndex(index);
+		boolean all = true;
+		for (String id : ids) {
+			if (registry.containsStation(id)) {
+				all = false;
+			}
+		}
+		for (SwnNet.Place p : net.getPlaces()) {
+			Object key = registry.getStation(p.id);
+			if (key != null && (all || ids.contains(p.id))) {
+				for (Map<String, Integer> combination : unfolder.getCombinations(p)) {
+					model.addMeasure(SimulationDefinition.MEASURE_QL, key, classes.get(combination));
+				}
+			}
+		}
+		for (SwnNet.Transition t : net.getTransitions()) {
+			Object key = registry.getStation(t.id);
+			if (key != null && (all || ids.contains(t.id))) {
+				for (int mode = 0; mode < model.getTransitionModeListSize(key); mode++) {
+					model.addMeasure(SimulationDefinition.MEASURE_FX, key, model.getTransitionModeName(key, mode));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the station the token class refers to: the first place, or the
+	 * first transition if there are no places.
+	 */
+	private Object getReferenceStation() {
+		Object nodeKey = registry.getFirstStation(CommonConstants.STATION_TYPE_PLACE);
+		return (nodeKey != null) ? nodeKey : registry.getFirstStation(CommonConstants.STATION_TYPE_TRANSITION);
+	}
+
+	private void readHadoopCap(File file, boolean reduce)
+			throws ImportException, InvalidIDException, SAXException, IOException {
+		metrics.begin("template");
+		TemplateCache.load("HadoopCap.jsimg", model);
+
+		metrics.begin("import");
+		PetriNetDocHLAPI doc = importDocument(file);
+		List<PetriNetHLAPI> nets = doc.getNetsHLAPI();
+		if (nets.size() > 1) {
+			System.err.println("PNML: only the first of " + nets.size() + " nets is converted");
+		}
+		buildHadoopCap(nets.get(0), reduce);
+	}
+
+	/**
+	 * Adds the classes and stations of a HadoopCap net to the model, which
+	 * already holds the HadoopCap template.
+	 */
+	private void buildHadoopCap(PetriNetHLAPI pnmlNet, boolean reduce) throws SAXException, IOException {
+		metrics.begin("specifics");
+		net = PnmlNet.flatten(pnmlNet);
+		registry.addNames(net);
+
+		List<ToolInfoHLAPI> specifics = pnmlNet.getToolspecificsHLAPI();
+		ArrayList<ColorSet> colorSets = new ArrayList<ColorSet>();
+		for (ToolInfoHLAPI s : specifics) {
+			Element elem = createSpecificRootElement(s);
+			Object temp = parseSpecificColorSetDefinition(elem);
+			if (temp != null) {
+				colorSets.add((ColorSet) temp);
+			} else {
+				elem = createSpecificRootElement(s);
+				temp = parseSpecificColorDefinition(elem);
+				if (temp != null) {
+					colorSets.get(colorSets.size() - 1).colors.add((Color) temp);
+				}
+			}
+		}
+		int degree = colorSets.size() - 4;
+
+		ColorSet startSet = colorSets.get(degree);
+		ColorSet reducingSet = colorSets.get(degree + 1);
+		ColorSet mappingSet = colorSets.get(degree + 2);
+		ColorSet resourceSet = colorSets.get(degree + 3);
+
+		Object[] thinkDistributions = new Object[degree];
+		Object[] mapDistributions = new Object[degree];
+		Object[] redDistributions = new Object[degree];
+		for (int i = 0; i < degree; i++) {
+			thinkDistributions[i] = getFiringTimeDistribution(registry.getTransitionByName(
+					startSet.name + "_trans_" + startSet.name + "_" + i));
+			mapDistributions[i] = getFiringTimeDistribution(registry.getTransitionByName(
+					mappingSet.name + "_trans_" + mappingSet.name + "_" + i));
+			redDistributions[i] = getFiringTimeDistribution(registry.getTransitionByName(
+					reducingSet.name + "_trans_" + reducingSet.name + "_" + i));
+		}
+
+		metrics.begin("build");
+
+		// Resource colour j is preferred by job j. Two resource colours are
+		// merged when they hold the same number of tokens and the jobs
+		// preferring them are identical, in which case they share a single
+		// resource class and a single pair of execution stations. This is an
+		// approximation: each job then has its affinity priority on all the
+		// resources of its group, and can take the resources of a sibling
+		// colour ahead of the job preferring them.
+		int[] group = new int[degree];
+		List<Integer> groupTokens = new ArrayList<Integer>();
+		Map<String, Integer> groupMap = new HashMap<String, Integer>();
+		for (int j = 0; j < degree; j++) {
+			String key = resourceSet.colors.get(j).numOfTokens + "/" + startSet.colors.get(j).numOfTokens + "/"
+					+ mappingSet.colors.get(j).numOfTokens + "/" + reducingSet.colors.get(j).numOfTokens + "/"
+					+ getDistributionKey(thinkDistributions[j]) + "/" + getDistributionKey(mapDistributions[j]) + "/"
+					+ getDistributionKey(redDistributions[j]);
+			Integer g = reduce ? groupMap.get(key) : null;
+			if (g == null) {
+				g = Integer.valueOf(groupTokens.size());
+				groupMap.put(key, g);
+				groupTokens.add(Integer.valueOf(0));
+			}
+			group[j] = g.intValue();
+			groupTokens.set(group[j], Integer.valueOf(groupTokens.get(group[j]).intValue()
+					+ resourceSet.colors.get(j).numOfTokens));
+		}
+		int groups = groupTokens.size();
+
+		for (Object sk : model.getStationKeys()) {
+			registry.addStation(model.getStationName(sk), sk, model.getStationType(sk));
+		}
+		for (int g = 0; g < groups; g++) {
+			Object mapExecKey = model.addStation("MapExec" + g, CommonConstants.STATION_TYPE_DELAY);
+			registry.addStation(model.getStationName(mapExecKey), mapExecKey, model.getStationType(mapExecKey));
+			Object mapDoneKey = model.addStation("MapDone" + g, CommonConstants.STATION_TYPE_PLACE);
+			registry.addStation(model.getStationName(mapDoneKey), mapDoneKey, model.getStationType(mapDoneKey));
+			model.setConnected(registry.getStation("MapAcqRes"), mapExecKey, true);
+			model.setConnected(mapExecKey, mapDoneKey, true);
+			model.setConnected(mapDoneKey, registry.getStation("MapRelRes"), true);
+
+			Object redExecKey = model.addStation("RedExec" + g, CommonConstants.STATION_TYPE_DELAY);
+			registry.addStation(model.getStationName(redExecKey), redExecKey, model.getStationType(redExecKey));
+			Object redDoneKey = model.addStation("RedDone" + g, CommonConstants.STATION_TYPE_PLACE);
+			registry.addStation(model.getStationName(redDoneKey), redDoneKey, model.getStationType(redDoneKey));
+			model.setConnected(registry.getStation("RedAcqRes"), redExecKey, true);
+			model.setConnected(redExecKey, redDoneKey, true);
+			model.setConnected(redDoneKey, registry.getStation("RedRelRes"), true);
+		}
+
+		Map<String, Object> classMap = new HashMap<String, Object>();
+		for (int i = 0; i < degree; i++) {
+			Object jobKey = model.addClass("Job" + i, CommonConstants.CLASS_TYPE_CLOSED, Integer.valueOf(0),
+					Integer.valueOf(startSet.colors.get(i).numOfTokens), null);
+			classMap.put(model.getClassName(jobKey), jobKey);
+			model.setClassRefStation(jobKey, registry.getStation("Think"));
+			model.setPreloadedJobs(registry.getStation("Think"), jobKey, model.getClassPopulation(jobKey));
+
+			if (i < groups) {
+				Object resKey = model.addClass("Res" + i, CommonConstants.CLASS_TYPE_CLOSED, Integer.valueOf(0),
+						groupTokens.get(i), null);
+				classMap.put(model.getClassName(resKey), resKey);
+				model.setClassRefStation(resKey, registry.getStation("FreeRess"));
+				model.setPreloadedJobs(registry.getStation("FreeRess"), resKey, model.getClassPopulation(resKey));
+			}
+
+			Object flagKey = model.addClass("Flag" + i, CommonConstants.CLASS_TYPE_CLOSED, Integer.valueOf(0),
+					Integer.valueOf(1), null);
+			classMap.put(model.getClassName(flagKey), flagKey);
+			model.setClassRefStation(flagKey, registry.getStation("ReadyForJob"));
+			model.setPreloadedJobs(registry.getStation("ReadyForJob"), flagKey, model.getClassPopulation(flagKey));
+		}
+
+		metrics.begin("modes");
+		for (int i = 0; i < degree; i++) {
+			HadoopCapClassEvent event = new HadoopCapClassEvent();
+			event.begin();
+			if (thinkDistributions[i] != null) {
+				model.setServiceTimeDistribution(registry.getStation("Think"), classMap.get("Job" + i),
+						thinkDistributions[i]);
+			}
+
+			if (i == 0) {
+				model.deleteTransitionMode(registry.getStation("StartJob"), 0);
+			}
+			model.addTransitionMode(registry.getStation("StartJob"), Defaults.get("transitionModeName") + i);
+			model.setNumberOfServers(registry.getStation("StartJob"), i, Integer.valueOf(1));
+			model.setFiringTimeDistribution(registry.getStation("StartJob"), i, new ZeroStrategy());
+			model.setFiringPriority(registry.getStation("StartJob"), i, Integer.valueOf(0));
+			model.setFiringWeight(registry.getStation("StartJob"), i, Double.valueOf(1.0));
+			model.setEnablingCondition(registry.getStation("StartJob"), i, registry.getStation("JobQueue"),
+					classMap.get("Job" + i), Integer.valueOf(1));
+			model.setEnablingCondition(registry.getStation("StartJob"), i, registry.getStation("ReadyForJob"),
+					classMap.get("Flag" + i), Integer.valueOf(1));
+			model.setInhibitingCondition(registry.getStation("StartJob"), i, registry.getStation("RedQueue"),
+					classMap.get("Job" + i), Integer.valueOf(1));
+			model.setFiringOutcome(registry.getStation("StartJob"), i, registry.getStation("ForkMaps"),
+					classMap.get("Job" + i), Integer.valueOf(1));
+
+			Object mapFork = model.getForkStrategy(registry.getStation("ForkMaps"), classMap.get("Job" + i));
+			OutPath mapPath = new OutPath();
+			mapPath.setProbability(Double.valueOf(1.0));
+			mapPath.putEntry(Integer.valueOf(mappingSet.colors.get(i).numOfTokens), Double.valueOf(1.0));
+			((ProbabilitiesFork) mapFork).getOutDetails().put(registry.getStation("MapQueue"), mapPath);
+
+			if (i == 0) {
+				model.deleteTransitionMode(registry.getStation("MapAcqRes"), 0);
+			}
+			for (int g = 0; g < groups; g++) {
+				int index = i * groups + g;
+				model.addTransitionMode(registry.getStation("MapAcqRes"), Defaults.get("transitionModeName") + i + g);
+				model.setNumberOfServers(registry.getStation("MapAcqRes"), index, Integer.valueOf(1));
+				model.setFiringTimeDistribution(registry.getStation("MapAcqRes"), index, new ZeroStrategy());
+				model.setFiringPriority(registry.getStation("MapAcqRes"), index, Integer.valueOf(group[i] == g ? 1 : 0));
+				model.setFiringWeight(registry.getStation("MapAcqRes"), index, Double.valueOf(1.0));
+				model.setEnablingCondition(registry.getStation("MapAcqRes"), index, registry.getStation("MapQueue"),
+						classMap.get("Job" + i), Integer.valueOf(1));
+				model.setEnablingCondition(registry.getStation("MapAcqRes"), index, registry.getStation("FreeRess"),
+						classMap.get("Res" + g), Integer.valueOf(1));
+				model.setFiringOutcome(registry.getStation("MapAcqRes"), index, registry.getStation("MapExec" + g),
+						classMap.get("Job" + i), Integer.valueOf(1));
+			}
+
+			if (mapDistributions[i] != null) {
+				for (int g = 0; g < groups; g++) {
+					model.setServiceTimeDistribution(registry.getStation("MapExec" + g), classMap.get("Job" + i),
+							mapDistributions[i]);
+				}
+			}
+
+			if (i == 0) {
+				model.deleteTransitionMode(registry.getStation("MapRelRes"), 0);
+			}
+			for (int g = 0; g < groups; g++) {
+				int index = i * groups + g;
+				model.addTransitionMode(registry.getStation("MapRelRes"), Defaults.get("transitionModeName") + i + g);
+				model.setNumberOfServers(registry.getStation("MapRelRes"), index, Integer.valueOf(1));
+				model.setFiringTimeDistribution(registry.getStation("MapRelRes"), index, new ZeroStrategy());
+				model.setFiringPriority(registry.getStation("MapRelRes"), index, Integer.valueOf(0));
+				model.setFiringWeight(registry.getStation("MapRelRes"), index, Double.valueOf(1.0));
+				model.setEnablingCondition(registry.getStation("MapRelRes"), index, registry.getStation("MapDone" + g),
+						classMap.get("Job" + i), Integer.valueOf(1));
+				model.setFiringOutcome(registry.getStation("MapRelRes"), index, registry.getStation("JoinMaps"),
+						classMap.get("Job" + i), Integer.valueOf(1));
+				model.setFiringOutcome(registry.getStation("MapRelRes"), index, registry.getStation("FreeRess"),
+						classMap.get("Res" + g), Integer.valueOf(1));
+			}
+
+			if (i == 0) {
+				model.deleteTransitionMode(registry.getStation("RunRedPhase"), 0);
+			}
+			model.addTransitionMode(registry.getStation("RunRedPhase"), Defaults.get("transitionModeName") + i);
+			model.setNumberOfServers(registry.getStation("RunRedPhase"), i, Integer.valueOf(1));
+			model.setFiringTimeDistribution(registry.getStation("RunRedPhase"), i, new ZeroStrategy());
+			model.setFiringPriority(registry.getStation("RunRedPhase"), i, Integer.valueOf(0));
+			model.setFiringWeight(registry.getStation("RunRedPhase"), i, Double.valueOf(1.0));
+			model.setEnablingCondition(registry.getStation("RunRedPhase"), i, registry.getStation("MapPhaseOver"),
+					classMap.get("Job" + i), Integer.valueOf(1));
+			model.setFiringOutcome(registry.getStation("RunRedPhase"), i, registry.getStation("ForkReds"),
+					classMap.get("Job" + i), Integer.valueOf(1));
+			model.setFiringOutcome(registry.getStation("RunRedPhase"), i, registry.getStation("ReadyForJob"),
+					classMap.get("Flag" + i), Integer.valueOf(1));
+
+			Object redFork = model.getForkStrategy(registry.getStation("ForkReds"), classMap.get("Job" + i));
+			OutPath redPath = new OutPath();
+			redPath.setProbability(Double.valueOf(1.0));
+			redPath.putEntry(Integer.valueOf(reducingSet.colors.get(i).numOfTokens), Double.valueOf(1.0));
+			((ProbabilitiesFork) redFork).getOutDetails().put(registry.getStation("RedQueue"), redPath);
+
+			if (i == 0) {
+				model.deleteTransitionMode(registry.getStation("RedAcqRes"), 0);
+			}
+			for (int g = 0; g < groups; g++) {
+				int index = i * groups + g;
+				model.addTransitionMode(registry.getStation("RedAcqRes"), Defaults.get("transitionModeName") + i + g);
+				model.setNumberOfServers(registry.getStation("RedAcqRes"), index, Integer.valueOf(1));
+				model.setFiringTimeDistribution(registry.getStation("RedAcqRes"), index, new ZeroStrategy());
+				model.setFiringPriority(registry.getStation("RedAcqRes"), index, Integer.valueOf(group[i] == g ? 1 : 0));
+				model.setFiringWeight(registry.getStation("RedAcqRes"), index, Double.valueOf(1.0));
+				model.setEnablingCondition(registry.getStation("RedAcqRes"), index, registry.getStation("RedQueue"),
+						classMap.get("Job" + i), Integer.valueOf(1));
+				model.setEnablingCondition(registry.getStation("RedAcqRes"), index, registry.getStation("FreeRess"),
+						classMap.get("Res" + g), Integer.valueOf(1));
+				model.setFiringOutcome(registry.getStation("RedAcqRes"), index, registry.getStation("RedExec" + g),
+						classMap.get("Job" + i), Integer.valueOf(1));
+			}
+
+			if (redDistributions[i] != null) {
+				for (int g = 0; g < groups; g++) {
+					model.setServiceTimeDistribution(registry.getStation("RedExec" + g), classMap.get("Job" + i),
+							redDistributions[i]);
+				}
+			}
+
+			if (i == 0) {
+				model.deleteTransitionMode(registry.getStation("RedRelRes"), 0);
+			}
+			for (int g = 0; g < groups; g++) {
+				int index = i * groups + g;
+				model.addTransitionMode(registry.getStation("RedRelRes"), Defaults.get("transitionModeName") + i + g);
+				model.setNumberOfServers(registry.getStation("RedRelRes"), index, Integer.valueOf(1));
+				model.setFiringTimeDistribution(registry.getStation("RedRelRes"), index, new ZeroStrategy());
+				model.setFiringPriority(registry.getStation("RedRelRes"), index, Integer.valueOf(0));
+				model.setFiringWeight(registry.getStation("RedRelRes"), index, Double.valueOf(1.0));
+				model.setEnablingCondition(registry.getStation("RedRelRes"), index, registry.getStation("RedDone" + g),
+						classMap.get("Job" + i), Integer.valueOf(1));
+				model.setFiringOutcome(registry.getStation("RedRelRes"), index, registry.getStation("JoinReds"),
+						classMap.get("Job" + i), Integer.valueOf(1));
+				model.setFiringOutcome(registry.getStation("RedRelRes"), index, registry.getStation("FreeRess"),
+						classMap.get("Res" + g), Integer.valueOf(1));
+			}
+
+			if (event.shouldCommit()) {
+				event.jobClass = "Job" + i;
+				event.resourceClasses = groups;
+				event.transitionModes = 2 + 4 * groups;
+				event.mapTasks = mappingSet.colors.get(i).numOfTokens;
+				event.reduceTasks = reducingSet.colors.get(i).numOfTokens;
+				event.commit();
+			}
+		}
+
+		metrics.begin("measures");
+		for (int i = 0; i < degree; i++) {
+			model.addMeasure(SimulationDefinition.MEASURE_X, registry.getStation("JoinReds"), classMap.get("Job" + i));
+		}
+
+		if (reduce) {
+			System.err.println("HadoopCap approximation: " + degree + " resource colours merged into " + groups
+					+ " classes, transition modes " + (4 * degree * degree + 2 * degree) + " -> "
+					+ (4 * degree * groups + 2 * degree) + ", classes " + (3 * degree) + " -> "
+					+ (2 * degree + groups) + ", stations per execution phase " + degree + " -> " + groups
+					+ ((groups < degree) ? "; the affinity priority of each job covers all the colours merged with"
+							+ " its own, so the throughputs can differ from swn-HadoopCap"
+							: "; no colours merged, so the model is the same as swn-HadoopCap"));
+		}
+		metrics.end();
+	}
+
+	/**
+	 * Commits the flight recorder event of a place, transition or arc, if it
+	 * is being recorded.
+	 */
+	private static void commit(PnmlNodeEvent event, String id, String kind, int toolspecifics) {
+		if (event.shouldCommit()) {
+			event.id = id;
+			event.kind = kind;
+			event.toolspecifics = toolspecifics;
+			event.commit();
+		}
+	}
+
+	private static Object getFiringTimeDistribution(TransitionHLAPI transition) throws SAXException, IOException {
+		for (ToolInfoHLAPI s : transition.getToolspecificsHLAPI()) {
+			Element elem = createSpecificRootElement(s);
+			Object distribution = parseSpecificFiringTimeDistribution(elem);
+			if (distribution != null) {
+				return distribution;
+			}
+		}
+		return null;
+	}
+
+	private static String getDistributionKey(Object distribution) {
+		if (distribution instanceof Exponential) {
+			return "exp:" + ((Exponential) distribution).getParameter(0).getValue();
+		}
+		return String.valueOf(distribution);
+	}
+
+	private static Element createSpecificRootElement(ToolInfoHLAPI specific) throws SAXException, IOException {
+		ToolspecificEvent event = new ToolspecificEvent();
+		event.begin();
+		StringBuffer buffer = specific.getFormattedXMLBuffer();
+		DOMParser parser = parsers.get();
+		parser.parse(new InputSource(new StringReader(buffer.toString())));
+		Element root = parser.getDocument().getDocumentElement();
+		if (event.shouldCommit()) {
+			Element value = getFirstChildElementByTagName(root, PNML_DICE_E_VALUE);
+			event.grammar = (value != null) ? value.getAttribute(PNML_DICE_A_VALUE_GRAMMAR) : null;
+			event.characters = buffer.length();
+			event.commit();
+		}
+		return root;
+	}
+
+	/**
+	 * Parses the toolspecifics of many nodes, in parallel when there are
+	 * enough of them, into the grammar and text of their first value. Every
+	 * thread uses its own parser and keeps only these pairs, so that no
+	 * more than one document per thread is alive at a time, and the result
+	 * keeps the order of the input, so that it can be applied to the model
+	 * deterministically. Toolspecifics without a value are left out.
+	 */
+	private static List<List<String[]>> parseSpecificValues(final List<List<ToolInfoHLAPI>> specifics)
+			throws SAXException, IOException {
+		int count = 0;
+		for (List<ToolInfoHLAPI> list : specifics) {
+			count += list.size();
+		}
+		if (count < PARALLEL_THRESHOLD || THREADS == 1) {
+			return parseSpecificValues(specifics, 0, specifics.size());
+		}
+
+		int chunk = Math.max(1, specifics.size() / (THREADS * 4));
+		List<Future<List<List<String[]>>>> futures = new ArrayList<Future<List<List<String[]>>>>();
+		for (int from = 0; from < specifics.size(); from += chunk) {
+			final int start = from;
+			final int end = Math.min(from + chunk, specifics.size());
+			futures.add(getSpecificsPool().submit(new Callable<List<List<String[]>>>() {
+				public List<List<String[]>> call() throws SAXException, IOException {
+					return parseSpecificValues(specifics, start, end);
+				}
+			}));
+		}
+
+		List<List<String[]>> values = new ArrayList<List<String[]>>(specifics.size());
+		try {
+			for (Future<List<List<String[]>>> f : futures) {
+				values.addAll(f.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			for (Future<List<List<String[]>>> f : futures) {
+				f.cancel(true);
+			}
+			if (e.getCause() instanceof SAXException) {
+				throw (SAXException) e.getCause();
+			} else if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		return values;
+	}
+
+	private static List<List<String[]>> parseSpecificValues(List<List<ToolInfoHLAPI>> specifics, int start, int end)
+			throws SAXException, IOException {
+		List<List<String[]>> values = new ArrayList<List<String[]>>(end - start);
+		for (int i = start; i < end; i++) {
+			List<String[]> list = new ArrayList<String[]>(specifics.get(i).size());
+			for (ToolInfoHLAPI s : specifics.get(i)) {
+				Element value = getFirstChildElementByTagName(createSpecificRootElement(s), PNML_DICE_E_VALUE);
+				if (value != null) {
+					list.add(new String[] { value.getAttribute(PNML_DICE_A_VALUE_GRAMMAR), value.getTextContent() });
+				}
+			}
+			values.add(list);
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the pool the nets of a document are built on, which is not the
+	 * specifics pool, as the nets wait for their toolspecifics to be parsed
+	 * on the latter.
+	 */
+	private static synchronized ExecutorService getNetsPool() {
+		if (netsPool == null) {
+			netsPool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "pnml-nets");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return netsPool;
+	}
+
+	private static synchronized ExecutorService getSpecificsPool() {
+		if (specificsPool == null) {
+			specificsPool = Executors.newFixedThreadPool(THREADS, new ThreadFactory() {
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "pnml-specifics");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return specificsPool;
+	}
+
+	private void parseSpecificPlaceParameters(String[] value, CommonModel model, Object place) {
+		return;
+	}
+
+	private void parseSpecificTransitionParameters(String[] value, CommonModel model, Object transition) {
+		setTransitionParameter(transition, value[0], value[1]);
+	}
+
+	private void setTransitionParameter(Object transition, String grammar, String text) {
+		setTransitionParameter(transition, 0, grammar, text);
+	}
+
+	private void setTransitionParameter(Object transition, int mode, String grammar, String text) {
+		if (PNML_DICE_U_TSERV_INFINITE.equals(grammar)) {
+			model.setNumberOfServers(transition, mode, Integer.valueOf(-1));
+		} else if (PNML_DICE_U_TKIND_EXPONENTIAL.equals(grammar)) {
+			Exponential exp = new Exponential();
+			exp.getParameter(0).setValue(Double.valueOf(text));
+			model.setFiringTimeDistribution(transition, mode, exp);
+			model.setFiringPriority(transition, mode, Integer.valueOf(-1));
+			model.setFiringWeight(transition, mode, Double.valueOf(1.0));
+		} else if (PNML_DICE_U_TKIND_IMMEDIATE_PRIORITY.equals(grammar)) {
+			model.setFiringPriority(transition, mode, Integer.valueOf(text));
+		} else if (PNML_DICE_U_TKIND_IMMEDIATE.equals(grammar)) {
+			model.setFiringWeight(transition, mode, Double.valueOf(text));
+		}
+	}
+
+	private void parseSpecificArcParameters(String[] value) {
+		if (PNML_DICE_U_AKIND_INHIBITOR.equals(value[0])) {
+			isNormalArc = false;
+		}
+	}
+
+	private static ColorSet parseSpecificColorSetDefinition(Element elem) {
+		List<Element> values = getChildElementsByTagName(elem, PNML_DICE_E_VALUE);
+		String grammar = values.get(0).getAttribute(PNML_DICE_A_VALUE_GRAMMAR);
+		if (PNML_DICE_U_COLOR_COLORSET.equals(grammar)) {
+			String name = values.get(0).getTextContent();
+			boolean isOrdered = values.get(1).getTextContent().equals("1");
+			return new ColorSet(name, isOrdered, new ArrayList<Color>());
+		}
+		return null;
+	}
+
+	private static Color parseSpecificColorDefinition(Element elem) {
+		List<Element> values = getChildElementsByTagName(elem, PNML_DICE_E_VALUE);
+		String grammar = values.get(0).getAttribute(PNML_DICE_A_VALUE_GRAMMAR);
+		if (PNML_DICE_U_COLOR_COLOR.equals(grammar)) {
+			int id = Integer.parseInt(values.get(0).getTextContent());
+			String name = values.get(1).getTextContent();
+			int numOfTokens = Integer.parseInt(values.get(2).getTextContent());
+			return new Color(id, name, numOfTokens);
+		}
+		return null;
+	}
+
+	private static Object parseSpecificFiringTimeDistribution(Element elem) {
+		Element value = getFirstChildElementByTagName(elem, PNML_DICE_E_VALUE);
+		String grammar = value.getAttribute(PNML_DICE_A_VALUE_GRAMMAR);
+		if (PNML_DICE_U_TKIND_EXPONENTIAL.equals(grammar)) {
+			Exponential exp = new Exponential();
+			exp.getParameter(0).setValue(Double.valueOf(value.getTextContent()));
+			return exp;
+		}
+		return null;
+	}
+
+	private static Element getFirstChildElementByTagName(Element elem, String name) {
+		NodeList childNodes = elem.getChildNodes();
+		for (int i = 0; i < childNodes.getLength(); i++) {
+			Node cn = childNodes.item(i);
+			if (cn.getNodeType() == Node.ELEMENT_NODE && cn.getNodeName().equals(name)) {
+				return (Element) cn;
+			}
+		}
+		return null;
+	}
+
+	private static List<Element> getChildElementsByTagName(Element elem, String name) {
+		List<Element> childElems = new ArrayList<Element>();
+		NodeList childNodes = elem.getChildNodes();
+		for (int i = 0; i < childNodes.getLength(); i++) {
+			Node cn = childNodes.item(i);
+			if (cn.getNodeType() == Node.ELEMENT_NODE && cn.getNodeName().equals(name)) {
+				childElems.add((Element) cn);
+			}
+		}
+		return childElems;
+	}
+
+}
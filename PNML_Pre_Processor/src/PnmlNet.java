@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.lip6.move.pnml.ptnet.hlapi.ArcHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.PageHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.PetriNetHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.PlaceHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.RefPlaceHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.RefTransitionHLAPI;
+import fr.lip6.move.pnml.ptnet.hlapi.TransitionHLAPI;
+
+/**
+ * PNML Net
+ *
+ * The places, transitions and arcs of a net gathered from all of its pages,
+ * page by page in document order with each page followed by the pages it
+ * contains, so that a net split over several pages is converted as a
+ * single one. Reference places and transitions stand for the node they
+ * refer to, possibly through other reference nodes, so arcs drawn to them
+ * connect that node
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class PnmlNet {
+
+	private final String id;
+	private final List<PlaceHLAPI> places = new ArrayList<PlaceHLAPI>();
+	private final List<TransitionHLAPI> transitions = new ArrayList<TransitionHLAPI>();
+	private final List<ArcHLAPI> arcs = new ArrayList<ArcHLAPI>();
+	private final Map<String, String> references = new HashMap<String, String>();
+
+	private PnmlNet(String id) {
+		this.id = id;
+	}
+
+	/**
+	 * Gathers the nodes of all the pages of the net.
+	 */
+	static PnmlNet flatten(PetriNetHLAPI net) {
+		PnmlNet flat = new PnmlNet(net.getId());
+		for (PageHLAPI page : net.getPagesHLAPI()) {
+			flat.addPage(page);
+		}
+		return flat;
+	}
+
+	private void addPage(PageHLAPI page) {
+		places.addAll(page.getObjects_PlaceHLAPI());
+		transitions.addAll(page.getObjects_TransitionHLAPI());
+		arcs.addAll(page.getObjects_ArcHLAPI());
+		for (RefPlaceHLAPI r : page.getObjects_RefPlaceHLAPI()) {
+			if (r.getRefHLAPI() != null) {
+				references.put(r.getId(), r.getRefHLAPI().getId());
+			}
+		}
+		for (RefTransitionHLAPI r : page.getObjects_RefTransitionHLAPI()) {
+			if (r.getRefHLAPI() != null) {
+				references.put(r.getId(), r.getRefHLAPI().getId());
+			}
+		}
+		for (PageHLAPI p : page.getObjects_PageHLAPI()) {
+			addPage(p);
+		}
+	}
+
+	String getId() {
+		return id;
+	}
+
+	List<PlaceHLAPI> getPlaces() {
+		return places;
+	}
+
+	List<TransitionHLAPI> getTransitions() {
+		return transitions;
+	}
+
+	List<ArcHLAPI> getArcs() {
+		return arcs;
+	}
+
+	/**
+	 * Returns the id of the place or transition a node stands for: the node
+	 * itself, or the node a reference node refers to in the end.
+	 */
+	String resolve(String nodeId) {
+		return resolve(references, nodeId);
+	}
+
+	/**
+	 * Returns the id of the place or transition a node stands for, given the
+	 * node each reference node refers to.
+	 */
+	static String resolve(Map<String, String> references, String nodeId) {
+		String resolved = nodeId;
+		// a chain can visit each reference at most once, unless it is a cycle
+		for (int i = 0; i <= references.size() && references.containsKey(resolved); i++) {
+			resolved = references.get(resolved);
+		}
+		return resolved;
+	}
+
+}
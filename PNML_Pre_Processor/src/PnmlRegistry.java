@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import fr.lip6.move.pnml.ptnet.hlapi.TransitionHLAPI;
+
+/**
+ * PNML Registry
+ *
+ * Indexes the nodes of a net once, so that every lookup of a conversion
+ * takes constant time: the stations added to the model by id, their types,
+ * the stations of each type in the order they were added, and the
+ * transitions of the PNML net by name
+ *
+ * As with the linear scans it replaces, a later station with the same id
+ * replaces an earlier one, while the first transition with a given name is
+ * the one found by name
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class PnmlRegistry {
+
+	private final Map<String, Object> stations = new HashMap<String, Object>();
+	private final Map<Object, String> types = new HashMap<Object, String>();
+	private final Map<String, List<Object>> stationsByType = new HashMap<String, List<Object>>();
+	private final Map<String, TransitionHLAPI> transitionsByName = new HashMap<String, TransitionHLAPI>();
+
+	/**
+	 * Indexes the transitions of the net by name.
+	 */
+	void addNames(PnmlNet net) {
+		for (TransitionHLAPI t : net.getTransitions()) {
+			String name = (t.getNameHLAPI() != null) ? t.getNameHLAPI().getText() : null;
+			if (name != null && !transitionsByName.containsKey(name)) {
+				transitionsByName.put(name, t);
+			}
+		}
+	}
+
+	/**
+	 * Registers a station of the model under the given id.
+	 */
+	void addStation(String id, Object key, String type) {
+		stations.put(id, key);
+		types.put(key, type);
+		List<Object> list = stationsByType.get(type);
+		if (list == null) {
+			list = new ArrayList<Object>();
+			stationsByType.put(type, list);
+		}
+		list.add(key);
+	}
+
+	Object getStation(String id) {
+		return stations.get(id);
+	}
+
+	boolean containsStation(String id) {
+		return stations.containsKey(id);
+	}
+
+	/**
+	 * Returns the type of a registered station, or null if the key is not
+	 * registered.
+	 */
+	String getStationType(Object key) {
+		return (key != null) ? types.get(key) : null;
+	}
+
+	/**
+	 * Returns the stations of the given type, in the order they were added.
+	 */
+	List<Object> getStations(String type) {
+		List<Object> list = stationsByType.get(type);
+		return (list != null) ? Collections.unmodifiableList(list) : Collections.emptyList();
+	}
+
+	/**
+	 * Returns the first station of the given type, or null if there is none.
+	 */
+	Object getFirstStation(String type) {
+		List<Object> list = stationsByType.get(type);
+		return (list != null && !list.isEmpty()) ? list.get(0) : null;
+	}
+
+	TransitionHLAPI getTransitionByName(String name) {
+		return transitionsByName.get(name);
+	}
+
+}
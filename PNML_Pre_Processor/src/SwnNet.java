@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SWN Net
+ *
+ * A coloured net as written by the DICE PNML extensions, held as colour
+ * classes, places, transitions and arcs so that SwnUnfolder can find the
+ * colour combinations it actually uses
+ *
+ * Every node carries colour terms, each giving a colour class, the index of
+ * a colour of the class and a count. On a place, the terms give the colours
+ * of its tokens and their initial marking; on an arc, the colours of the
+ * tokens it moves and how many; on a transition, they act as a guard,
+ * fixing the colour of each class unless the count is negative. An index of
+ * -1 is a variable, which a transition binds to any colour of the class.
+ * The colours of a class are those of the places, the guards and the
+ * definitions of the net, which the terms of the arcs refer to. Places
+ * and arcs without terms hold and move uncoloured tokens, as many as their
+ * marking and weight
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class SwnNet {
+
+	static final int VARIABLE = -1;
+
+	private final Map<String, List<Integer>> colourClasses = new LinkedHashMap<String, List<Integer>>();
+	private final List<Place> places = new ArrayList<Place>();
+	private final List<Transition> transitions = new ArrayList<Transition>();
+	private final Map<String, Place> placeMap = new HashMap<String, Place>();
+	private final Map<String, Transition> transitionMap = new HashMap<String, Transition>();
+
+	/**
+	 * A colour class, the index of one of its colours, or VARIABLE, and a
+	 * count.
+	 */
+	static final class Term {
+
+		final String colourClass;
+		final int index;
+		final int count;
+
+		Term(String colourClass, int index, int count) {
+			this.colourClass = colourClass;
+			this.index = index;
+			this.count = count;
+		}
+
+	}
+
+	static final class Place {
+
+		final String id;
+		final List<Term> terms;
+		final int marking;
+		final List<Arc> outputs = new ArrayList<Arc>();
+
+		Place(String id, List<Term> terms, int marking) {
+			this.id = id;
+			this.terms = terms;
+			this.marking = marking;
+		}
+
+	}
+
+	static final class Transition {
+
+		final String id;
+		final List<Term> guard;
+		final List<String[]> specifics;
+		final List<Arc> inputs = new ArrayList<Arc>();
+		final List<Arc> outputs = new ArrayList<Arc>();
+		final List<Arc> inhibitors = new ArrayList<Arc>();
+
+		Transition(String id, List<Term> guard, List<String[]> specifics) {
+			this.id = id;
+			this.guard = guard;
+			this.specifics = specifics;
+		}
+
+	}
+
+	/**
+	 * An arc between a place and a transition: an input or inhibitor arc of
+	 * the transition, or an output arc of the transition into the place.
+	 */
+	static final class Arc {
+
+		final Place place;
+		final Transition transition;
+		final List<Term> terms;
+		final int weight;
+
+		Arc(Place place, Transition transition, List<Term> terms, int weight) {
+			this.place = place;
+			this.transition = transition;
+			this.terms = terms;
+			this.weight = weight;
+		}
+
+	}
+
+	/**
+	 * Adds a colour to its class, adding the class if it is new.
+	 */
+	void addColour(String colourClass, int index) {
+		List<Integer> colours = colourClasses.get(colourClass);
+		if (colours == null) {
+			colours = new ArrayList<Integer>();
+			colourClasses.put(colourClass, colours);
+		}
+		if (!colours.contains(Integer.valueOf(index))) {
+			colours.add(Integer.valueOf(index));
+		}
+	}
+
+	/**
+	 * Returns the indices of the colours of a class, in the order they were
+	 * added, or an empty list if the class is unknown.
+	 */
+	List<Integer> getColours(String colourClass) {
+		List<Integer> colours = colourClasses.get(colourClass);
+		return (colours != null) ? colours : new ArrayList<Integer>();
+	}
+
+	/**
+	 * Adds a place with its colour terms, and the marking it holds if it
+	 * has none.
+	 */
+	void addPlace(String id, List<Term> terms, int marking) {
+		Place p = new Place(id, terms, marking);
+		places.add(p);
+		placeMap.put(id, p);
+	}
+
+	/**
+	 * Adds a transition with its guard and its other toolspecifics, given as
+	 * pairs of grammar and value.
+	 */
+	void addTransition(String id, List<Term> guard, List<String[]> specifics) {
+		Transition t = new Transition(id, guard, specifics);
+		transitions.add(t);
+		transitionMap.put(id, t);
+	}
+
+	/**
+	 * Adds an arc between a place and a transition, in either direction,
+	 * with its colour terms, and the weight it has if it has none. An
+	 * inhibitor arc from a transition is an output arc. Returns false, adding
+	 * nothing, if either end is unknown or both ends are of the same kind.
+	 */
+	boolean addArc(String source, String target, List<Term> terms, int weight, boolean inhibitor) {
+		Place p = placeMap.get(source);
+		Transition t = transitionMap.get(target);
+		if (p != null && t != null) {
+			Arc a = new Arc(p, t, terms, weight);
+			if (inhibitor) {
+				t.inhibitors.add(a);
+			} else {
+				t.inputs.add(a);
+				p.outputs.add(a);
+			}
+			return true;
+		}
+		t = transitionMap.get(source);
+		p = placeMap.get(target);
+		if (p != null && t != null) {
+			t.outputs.add(new Arc(p, t, terms, weight));
+			return true;
+		}
+		return false;
+	}
+
+	List<Place> getPlaces() {
+		return places;
+	}
+
+	List<Transition> getTransitions() {
+		return transitions;
+	}
+
+}
@@ -0,0 +1,375 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * SWN Unfolder
+ *
+ * Finds the colour combinations a coloured net can actually produce and
+ * the bindings under which each transition can fire, so that only those
+ * become job classes and transition modes. A colour combination gives one
+ * colour of each colour class of a token; a binding gives the colour of
+ * each variable of a transition
+ *
+ * The search starts from the combinations of the initial marking. A
+ * transition is bound by matching its input arcs, one after the other,
+ * against the combinations already found in their places, so a binding is
+ * only ever built from combinations that exist, and never from the cross
+ * product of the colour classes. Each new binding produces the
+ * combinations of its output arcs, whose places are then matched again,
+ * until nothing new is found. Token counts are not tracked, so a
+ * combination found may still never be reached when the net runs; those
+ * not found are never reached. An input arc with several terms of the same
+ * colour class takes a token of each, so a binding needs all of them in
+ * the place
+ *
+ * The count of a combination on a place or an arc is the largest count of
+ * its terms, and arcs whose terms all count 0 are ignored. A variable
+ * left unbound on an output or inhibitor arc stands for every colour of its
+ * class
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class SwnUnfolder {
+
+	private final SwnNet net;
+	private final Map<SwnNet.Place, Set<Map<String, Integer>>> combinations = new HashMap<SwnNet.Place, Set<Map<String, Integer>>>();
+	private final Map<SwnNet.Transition, Set<Map<String, Integer>>> bindings = new HashMap<SwnNet.Transition, Set<Map<String, Integer>>>();
+
+	private long productModes;
+
+	/**
+	 * A colour combination and how many tokens of it.
+	 */
+	static final class Token {
+
+		final Map<String, Integer> colours;
+		final int count;
+
+		Token(Map<String, Integer> colours, int count) {
+			this.colours = colours;
+			this.count = count;
+		}
+
+	}
+
+	private SwnUnfolder(SwnNet net) {
+		this.net = net;
+	}
+
+	/**
+	 * Finds the combinations and bindings of the net.
+	 */
+	static SwnUnfolder unfold(SwnNet net) {
+		SwnUnfolder unfolder = new SwnUnfolder(net);
+		unfolder.search();
+		return unfolder;
+	}
+
+	private void search() {
+		for (SwnNet.Place p : net.getPlaces()) {
+			for (Token token : expand(p.terms, p.marking, Collections.<String, Integer> emptyMap())) {
+				if (token.count > 0) {
+					getCombinationSet(p).add(token.colours);
+				}
+			}
+		}
+
+		ArrayDeque<SwnNet.Transition> queue = new ArrayDeque<SwnNet.Transition>(net.getTransitions());
+		Set<SwnNet.Transition> queued = new HashSet<SwnNet.Transition>(net.getTransitions());
+		while (!queue.isEmpty()) {
+			SwnNet.Transition t = queue.poll();
+			queued.remove(t);
+			for (Map<String, Integer> binding : bind(t)) {
+				if (!getBindingSet(t).add(binding)) {
+					continue;
+				}
+				for (SwnNet.Arc a : t.outputs) {
+					for (Token token : expand(a.terms, a.weight, binding)) {
+						if (token.count > 0 && getCombinationSet(a.place).add(token.colours)) {
+							for (SwnNet.Arc reader : a.place.outputs) {
+								if (queued.add(reader.transition)) {
+									queue.add(reader.transition);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+
+		for (SwnNet.Transition t : net.getTransitions()) {
+			productModes += countProductBindings(t);
+		}
+	}
+
+	/**
+	 * Returns the bindings under which the transition can fire, given the
+	 * combinations found so far: those of its guard, extended by matching
+	 * each input arc against the combinations of its place. A binding is
+	 * dropped as soon as an input arc takes a combination not found in its
+	 * place.
+	 */
+	private List<Map<String, Integer>> bind(SwnNet.Transition t) {
+		List<Map<String, Integer>> partial = new ArrayList<Map<String, Integer>>();
+		partial.add(getGuardBinding(t));
+		for (SwnNet.Arc a : t.inputs) {
+			if (!isCounted(a)) {
+				continue;
+			}
+			Set<Map<String, Integer>> extended = new LinkedHashSet<Map<String, Integer>>();
+			for (Map<String, Integer> binding : partial) {
+				extended.addAll(match(a, binding));
+			}
+			if (extended.isEmpty()) {
+				return Collections.emptyList();
+			}
+			partial = new ArrayList<Map<String, Integer>>(extended);
+		}
+		return partial;
+	}
+
+	private static Map<String, Integer> getGuardBinding(SwnNet.Transition t) {
+		Map<String, Integer> binding = new TreeMap<String, Integer>();
+		for (SwnNet.Term term : t.guard) {
+			if (term.index != SwnNet.VARIABLE && term.count >= 0) {
+				binding.put(term.colourClass, Integer.valueOf(term.index));
+			}
+		}
+		return binding;
+	}
+
+	/**
+	 * Returns the extensions of the binding under which the place of the
+	 * input arc holds every combination the arc takes. The terms of an arc
+	 * are a sum of tokens, all taken when the transition fires, so each of
+	 * the combinations they stand for must have been found in the place,
+	 * not just one of them. The variables of the arc the binding leaves
+	 * unbound are bound to the colours of each combination of the place in
+	 * turn.
+	 */
+	private List<Map<String, Integer>> match(SwnNet.Arc a, Map<String, Integer> binding) {
+		Set<Map<String, Integer>> found = getCombinations(a.place);
+		Set<String> unbound = new LinkedHashSet<String>();
+		for (SwnNet.Term term : a.terms) {
+			if (term.index == SwnNet.VARIABLE && !binding.containsKey(term.colourClass)) {
+				unbound.add(term.colourClass);
+			}
+		}
+		Set<Map<String, Integer>> candidates = new LinkedHashSet<Map<String, Integer>>();
+		if (unbound.isEmpty()) {
+			candidates.add(binding);
+		}
+		for (Map<String, Integer> combination : found) {
+			if (unbound.isEmpty() || !combination.keySet().containsAll(unbound)) {
+				continue;
+			}
+			Map<String, Integer> extended = new TreeMap<String, Integer>(binding);
+			for (String colourClass : unbound) {
+				extended.put(colourClass, combination.get(colourClass));
+			}
+			candidates.add(extended);
+		}
+
+		List<Map<String, Integer>> matches = new ArrayList<Map<String, Integer>>();
+		for (Map<String, Integer> candidate : candidates) {
+			if (holdsAll(found, a, candidate)) {
+				matches.add(candidate);
+			}
+		}
+		return matches;
+	}
+
+	private boolean holdsAll(Set<Map<String, Integer>> found, SwnNet.Arc a, Map<String, Integer> binding) {
+		for (Token token : expand(a.terms, a.weight, binding)) {
+			if (token.count > 0 && !found.contains(token.colours)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the combinations the terms stand for under the binding, with
+	 * their counts. Each term of a colour class gives its own combinations,
+	 * all of which the arc moves, and a variable the binding leaves unbound
+	 * stands for every colour of its class. Without terms, the result is the uncoloured combination, as
+	 * many times as the given count.
+	 */
+	List<Token> expand(List<SwnNet.Term> terms, int count, Map<String, Integer> binding) {
+		List<Token> tokens = new ArrayList<Token>();
+		tokens.add(new Token(new TreeMap<String, Integer>(), terms.isEmpty() ? count : 0));
+		for (Map.Entry<String, List<SwnNet.Term>> group : group(terms).entrySet()) {
+			String colourClass = group.getKey();
+			List<Token> next = new ArrayList<Token>();
+			for (SwnNet.Term term : group.getValue()) {
+				List<Integer> colours;
+				if (term.index != SwnNet.VARIABLE) {
+					colours = Collections.singletonList(Integer.valueOf(term.index));
+				} else if (binding.containsKey(colourClass)) {
+					colours = Collections.singletonList(binding.get(colourClass));
+				} else {
+					colours = net.getColours(colourClass);
+				}
+				for (Token token : tokens) {
+					for (Integer colour : colours) {
+						Map<String, Integer> combination = new TreeMap<String, Integer>(token.colours);
+						combination.put(colourClass, colour);
+						next.add(new Token(combination, Math.max(token.count, term.count)));
+					}
+				}
+			}
+			tokens = next;
+		}
+		return tokens;
+	}
+
+	/**
+	 * Groups terms by colour class, in the order the classes first appear.
+	 */
+	private static Map<String, List<SwnNet.Term>> group(List<SwnNet.Term> terms) {
+		Map<String, List<SwnNet.Term>> groups = new LinkedHashMap<String, List<SwnNet.Term>>();
+		for (SwnNet.Term term : terms) {
+			List<SwnNet.Term> group = groups.get(term.colourClass);
+			if (group == null) {
+				group = new ArrayList<SwnNet.Term>();
+				groups.put(term.colourClass, group);
+			}
+			group.add(term);
+		}
+		return groups;
+	}
+
+	/**
+	 * Returns whether the arc moves any tokens, that is, whether any of its
+	 * terms, or its weight if it has none, counts more than 0.
+	 */
+	private static boolean isCounted(SwnNet.Arc a) {
+		if (a.terms.isEmpty()) {
+			return a.weight > 0;
+		}
+		for (SwnNet.Term term : a.terms) {
+			if (term.count > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of bindings of the transition in the cross product
+	 * of the colour classes of its unguarded variables.
+	 */
+	private long countProductBindings(SwnNet.Transition t) {
+		Map<String, Integer> guard = getGuardBinding(t);
+		Set<String> variables = new HashSet<String>();
+		for (SwnNet.Term term : t.guard) {
+			if (!guard.containsKey(term.colourClass)) {
+				variables.add(term.colourClass);
+			}
+		}
+		for (List<SwnNet.Arc> arcs : Arrays.asList(t.inputs, t.outputs, t.inhibitors)) {
+			for (SwnNet.Arc a : arcs) {
+				for (SwnNet.Term term : a.terms) {
+					if (term.index == SwnNet.VARIABLE && !guard.containsKey(term.colourClass)) {
+						variables.add(term.colourClass);
+					}
+				}
+			}
+		}
+		long count = 1;
+		for (String colourClass : variables) {
+			count *= Math.max(1, net.getColours(colourClass).size());
+		}
+		return count;
+	}
+
+	private Set<Map<String, Integer>> getCombinationSet(SwnNet.Place p) {
+		Set<Map<String, Integer>> set = combinations.get(p);
+		if (set == null) {
+			set = new LinkedHashSet<Map<String, Integer>>();
+			combinations.put(p, set);
+		}
+		return set;
+	}
+
+	private Set<Map<String, Integer>> getBindingSet(SwnNet.Transition t) {
+		Set<Map<String, Integer>> set = bindings.get(t);
+		if (set == null) {
+			set = new LinkedHashSet<Map<String, Integer>>();
+			bindings.put(t, set);
+		}
+		return set;
+	}
+
+	/**
+	 * Returns the combinations found in the place, in the order they were
+	 * found.
+	 */
+	Set<Map<String, Integer>> getCombinations(SwnNet.Place p) {
+		Set<Map<String, Integer>> set = combinations.get(p);
+		return (set != null) ? set : Collections.<Map<String, Integer>> emptySet();
+	}
+
+	/**
+	 * Returns the bindings under which the transition can fire, in the order
+	 * they were found, or an empty set if it can never fire.
+	 */
+	Set<Map<String, Integer>> getBindings(SwnNet.Transition t) {
+		Set<Map<String, Integer>> set = bindings.get(t);
+		return (set != null) ? set : Collections.<Map<String, Integer>> emptySet();
+	}
+
+	/**
+	 * Returns the number of bindings all the transitions would have if each
+	 * variable ranged over its whole colour class.
+	 */
+	long getProductModes() {
+		return productModes;
+	}
+
+	/**
+	 * Returns the name of a combination or binding, e.g. "job_0" for a
+	 * single colour, "(job_0, task_1)" for several or "Token" for none.
+	 */
+	static String getName(Map<String, Integer> colours) {
+		if (colours.isEmpty()) {
+			return "Token";
+		}
+		StringBuilder name = new StringBuilder();
+		for (Map.Entry<String, Integer> colour : colours.entrySet()) {
+			name.append((name.length() > 0) ? ", " : "").append(colour.getKey()).append('_').append(colour.getValue());
+		}
+		return (colours.size() > 1) ? "(" + name + ")" : name.toString();
+	}
+
+}
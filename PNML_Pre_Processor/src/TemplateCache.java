@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import jmt.gui.common.definitions.CommonModel;
+import jmt.gui.common.xml.XMLReader;
+
+/**
+ * Template Cache
+ *
+ * Keeps the simulation definition of each JSIMG template parsed in memory.
+ * Every conversion loads its model from a private copy of the cached
+ * definition instead of reading and parsing the template file again, and
+ * a template is parsed again only when its file changes
+ *
+ * The templates folder is the one given by the pnml.templates system
+ * property, or else the templates folder next to the folder the classes
+ * were loaded from, or next to the PNML pre-processor folder, or in the
+ * working directory
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+class TemplateCache {
+
+	private static final File TEMPLATES_DIR = findTemplatesDir();
+
+	private static final Map<String, Template> templates = new HashMap<String, Template>();
+
+	private static class Template {
+
+		public long lastModified;
+		public long length;
+		public Element sim;
+
+	}
+
+	private TemplateCache() {
+	}
+
+	/**
+	 * Returns the file of the named template.
+	 */
+	static File getFile(String name) {
+		return new File(TEMPLATES_DIR, name);
+	}
+
+	/**
+	 * Loads the named template into the model.
+	 */
+	static void load(String name, CommonModel model) throws SAXException, IOException {
+		XMLReader.parseXML(copy(name), model);
+	}
+
+	/**
+	 * Returns a copy of the simulation definition of the named template,
+	 * owned by a new document so that it can be read without holding the
+	 * cache lock.
+	 */
+	private static Element copy(String name) throws SAXException, IOException {
+		File file = getFile(name);
+		DocumentBuilder builder = newDocumentBuilder();
+		synchronized (templates) {
+			Template template = templates.get(name);
+			long lastModified = file.lastModified();
+			long length = file.length();
+			if (template == null || template.lastModified != lastModified || template.length != length) {
+				template = new Template();
+				template.lastModified = lastModified;
+				template.length = length;
+				template.sim = getSimElement(builder.parse(file), file);
+				templates.put(name, template);
+			}
+			Document doc = builder.newDocument();
+			Element sim = (Element) doc.importNode(template.sim, true);
+			doc.appendChild(sim);
+			return sim;
+		}
+	}
+
+	private static Element getSimElement(Document doc, File file) throws SAXException {
+		Element root = doc.getDocumentElement();
+		if (root.getTagName().equals("sim")) {
+			return root;
+		}
+		NodeList childNodes = root.getChildNodes();
+		for (int i = 0; i < childNodes.getLength(); i++) {
+			Node cn = childNodes.item(i);
+			if (cn.getNodeType() == Node.ELEMENT_NODE && cn.getNodeName().equals("sim")) {
+				return (Element) cn;
+			}
+		}
+		throw new SAXException("No simulation definition in template " + file);
+	}
+
+	private static DocumentBuilder newDocumentBuilder() {
+		try {
+			return DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static File findTemplatesDir() {
+		String property = System.getProperty("pnml.templates");
+		if (property != null) {
+			return new File(property);
+		}
+		File location = getClassLocation();
+		if (location != null) {
+			File parent = location.getParentFile();
+			if (parent != null) {
+				File dir = new File(parent, "templates");
+				if (dir.isDirectory()) {
+					return dir;
+				}
+				dir = new File(new File(parent.getParentFile(), "PNML_Pre_Processor"), "templates");
+				if (dir.isDirectory()) {
+					return dir;
+				}
+			}
+		}
+		return new File(System.getProperty("user.dir"), "templates");
+	}
+
+	private static File getClassLocation() {
+		try {
+			CodeSource source = TemplateCache.class.getProtectionDomain().getCodeSource();
+			if (source == null || source.getLocation() == null) {
+				return null;
+			}
+			return new File(source.getLocation().toURI()).getAbsoluteFile();
+		} catch (URISyntaxException e) {
+			return null;
+		} catch (SecurityException e) {
+			return null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+}
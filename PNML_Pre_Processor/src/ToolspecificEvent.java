@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Toolspecific Event
+ *
+ * JDK Flight Recorder event for the parsing of a toolspecific of a net into
+ * a DOM element, with the grammar of its first value and its length
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+@Name("dice.preprocessor.Toolspecific")
+@Label("Toolspecific Parse")
+@Category({ "DICE", "Pre-Processors", "PNML" })
+@Description("Parsing of a toolspecific into a DOM element")
+@StackTrace(false)
+final class ToolspecificEvent extends jdk.jfr.Event {
+
+	@Label("Grammar")
+	String grammar;
+
+	@Label("Characters")
+	int characters;
+
+}
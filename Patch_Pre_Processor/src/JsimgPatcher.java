@@ -0,0 +1,329 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * JSIMG Patcher
+ *
+ * Changes the parameters of a model saved in a JSIMG file without building
+ * the model again. The archive is read as a document, only the values named
+ * by the delta are changed, and the document is written back as it is
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public class JsimgPatcher {
+
+	private final Document archive;
+	private final Element sim;
+	private final Map<String, Element> nodes = new HashMap<String, Element>();
+	private final Map<String, Element> classes = new HashMap<String, Element>();
+
+	private JsimgPatcher(Document archive) {
+		this.archive = archive;
+		this.sim = getChildElement(archive.getDocumentElement(), "sim", null);
+		if (sim == null) {
+			throw new IllegalArgumentException("The archive has no simulation definition");
+		}
+		for (Node child = sim.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() != Node.ELEMENT_NODE) {
+				continue;
+			}
+			Element elem = (Element) child;
+			if (elem.getTagName().equals("node")) {
+				nodes.put(elem.getAttribute("name"), elem);
+			} else if (elem.getTagName().equals("userClass")) {
+				classes.put(elem.getAttribute("name"), elem);
+			}
+		}
+	}
+
+	/**
+	 * Applies the operations listed in the delta file, one per line, to the
+	 * input JSIMG file and writes the result to the output file. Empty lines
+	 * and lines starting with "#" are skipped.
+	 */
+	public static void patch(File input, File delta, File output) throws SAXException, IOException {
+		Document archive;
+		InputStream in = Compression.openInput(input);
+		try {
+			archive = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			in.close();
+		}
+		JsimgPatcher patcher = new JsimgPatcher(archive);
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(delta), "UTF-8"));
+		try {
+			String line;
+			int row = 0;
+			while ((line = reader.readLine()) != null) {
+				row++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				try {
+					patcher.apply(Tokenizer.tokenize(line));
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException(delta.getName() + ":" + row + ": " + e.getMessage(), e);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		patcher.sim.setAttribute("name", Compression.getName(output));
+		JsimgWriter.write(output, archive);
+	}
+
+	private void apply(List<String> op) {
+		String name = op.get(0);
+		if (name.equals("servers") && op.size() == 3) {
+			Element section = getSection(op.get(1), "Server");
+			setValue(getParameter(section, "maxJobs"), toInteger(op.get(2)));
+		} else if (name.equals("fork-degree") && op.size() == 3) {
+			Element section = getSection(op.get(1), "Fork");
+			setValue(getParameter(section, "jobsPerLink"), toInteger(op.get(2)));
+		} else if (name.equals("threshold") && op.size() == 4) {
+			Element section = getSection(op.get(1), "Semaphore");
+			Element strategy = getClassEntry(getParameter(section, "SemaphoreStrategy"), op.get(2));
+			setValue(getParameter(strategy, "threshold"), toInteger(op.get(3)));
+		} else if (name.equals("rate") && op.size() == 4) {
+			Element section = getSection(op.get(1), "Server", "Delay");
+			Element strategy = getClassEntry(getParameter(section, "ServiceStrategy"), op.get(2));
+			setValue(getLambda(strategy, op.get(1)), toDouble(op.get(3)));
+		} else if (name.equals("firing-rate") && (op.size() == 3 || op.size() == 4)) {
+			Element section = getSection(op.get(1), "Timing");
+			int mode = 0;
+			if (op.size() == 4) {
+				mode = getModeIndex(getParameter(section, "modeNames"), op.get(2));
+			}
+			Element strategy = getArrayEntry(getParameter(section, "timingStrategies"), mode);
+			setValue(getLambda(strategy, op.get(1)), toDouble(op.get(op.size() - 1)));
+		} else if (name.equals("population") && op.size() == 3) {
+			setPopulation(op.get(1), toInteger(op.get(2)));
+		} else if (name.equals("marking") && op.size() == 4) {
+			setMarking(op.get(1), op.get(2), toInteger(op.get(3)));
+		} else {
+			throw new IllegalArgumentException("Unknown operation: " + name + " with " + (op.size() - 1)
+					+ " argument(s)");
+		}
+	}
+
+	private void setPopulation(String className, String population) {
+		Element userClass = classes.get(className);
+		if (userClass == null) {
+			throw new IllegalArgumentException("Unknown class " + className);
+		}
+		if (!userClass.getAttribute("type").equals("closed")) {
+			throw new IllegalArgumentException("Class " + className + " is not closed");
+		}
+		String old = userClass.getAttribute("customers");
+		userClass.setAttribute("customers", population);
+
+		// the jobs of a closed class start at its reference station
+		Element classPopulation = getClassPopulation(userClass.getAttribute("referenceSource"), className, false);
+		if (classPopulation != null && classPopulation.getAttribute("population").equals(old)) {
+			classPopulation.setAttribute("population", population);
+		}
+	}
+
+	private void setMarking(String station, String className, String marking) {
+		if (!nodes.containsKey(station)) {
+			throw new IllegalArgumentException("Unknown station " + station);
+		}
+		if (!classes.containsKey(className)) {
+			throw new IllegalArgumentException("Unknown class " + className);
+		}
+		getClassPopulation(station, className, true).setAttribute("population", marking);
+	}
+
+	private Element getClassPopulation(String station, String className, boolean create) {
+		Element preload = getChildElement(sim, "preload", null);
+		if (preload == null) {
+			if (!create) {
+				return null;
+			}
+			preload = archive.createElement("preload");
+			sim.appendChild(preload);
+		}
+		Element stationPopulations = getChildElement(preload, "stationPopulations", station);
+		if (stationPopulations == null) {
+			if (!create) {
+				return null;
+			}
+			stationPopulations = archive.createElement("stationPopulations");
+			stationPopulations.setAttribute("stationName", station);
+			preload.appendChild(stationPopulations);
+		}
+		for (Node child = stationPopulations.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE
+					&& ((Element) child).getAttribute("refClass").equals(className)) {
+				return (Element) child;
+			}
+		}
+		if (!create) {
+			return null;
+		}
+		Element classPopulation = archive.createElement("classPopulation");
+		classPopulation.setAttribute("refClass", className);
+		stationPopulations.appendChild(classPopulation);
+		return classPopulation;
+	}
+
+	private Element getSection(String station, String... classNames) {
+		Element node = nodes.get(station);
+		if (node == null) {
+			throw new IllegalArgumentException("Unknown station " + station);
+		}
+		for (String className : classNames) {
+			for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+				if (child.getNodeType() == Node.ELEMENT_NODE
+						&& ((Element) child).getAttribute("className").equals(className)) {
+					return (Element) child;
+				}
+			}
+		}
+		throw new IllegalArgumentException("Station " + station + " has no " + classNames[0] + " section");
+	}
+
+	/**
+	 * Returns the parameter or sub-parameter of the given element with the
+	 * given name.
+	 */
+	private static Element getParameter(Element elem, String name) {
+		for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE && ((Element) child).getAttribute("name").equals(name)) {
+				return (Element) child;
+			}
+		}
+		throw new IllegalArgumentException("No parameter " + name + " in " + elem.getAttribute("className")
+				+ elem.getAttribute("name"));
+	}
+
+	/**
+	 * Returns the entry of a per-class array parameter for the given class.
+	 * Each entry follows the refClass element naming its class.
+	 */
+	private static Element getClassEntry(Element array, String className) {
+		boolean found = false;
+		for (Node child = array.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() != Node.ELEMENT_NODE) {
+				continue;
+			}
+			Element elem = (Element) child;
+			if (elem.getTagName().equals("refClass")) {
+				found = elem.getTextContent().equals(className);
+			} else if (found) {
+				return elem;
+			}
+		}
+		throw new IllegalArgumentException("No " + array.getAttribute("name") + " for class " + className);
+	}
+
+	private static Element getArrayEntry(Element array, int index) {
+		int i = 0;
+		for (Node child = array.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE && ((Element) child).getTagName().equals("subParameter")) {
+				if (i++ == index) {
+					return (Element) child;
+				}
+			}
+		}
+		throw new IllegalArgumentException("No entry " + index + " in " + array.getAttribute("name"));
+	}
+
+	private static int getModeIndex(Element modeNames, String mode) {
+		int i = 0;
+		for (Node child = modeNames.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE && ((Element) child).getTagName().equals("subParameter")) {
+				if (((Element) child).getTextContent().trim().equals(mode)) {
+					return i;
+				}
+				i++;
+			}
+		}
+		throw new IllegalArgumentException("Unknown mode " + mode);
+	}
+
+	private static Element getLambda(Element strategy, String station) {
+		for (Node child = strategy.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE
+					&& ((Element) child).getAttribute("classPath").equals("jmt.engine.random.ExponentialPar")) {
+				return getParameter((Element) child, "lambda");
+			}
+		}
+		throw new IllegalArgumentException("The distribution of " + station + " is not exponential");
+	}
+
+	private static void setValue(Element parameter, String value) {
+		Element elem = getChildElement(parameter, "value", null);
+		if (elem == null) {
+			throw new IllegalArgumentException("Parameter " + parameter.getAttribute("name") + " has no value");
+		}
+		elem.setTextContent(value);
+	}
+
+	private static Element getChildElement(Element elem, String tagName, String stationName) {
+		for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() == Node.ELEMENT_NODE && ((Element) child).getTagName().equals(tagName)
+					&& (stationName == null || ((Element) child).getAttribute("stationName").equals(stationName))) {
+				return (Element) child;
+			}
+		}
+		return null;
+	}
+
+	private static String toInteger(String text) {
+		try {
+			return Integer.valueOf(text).toString();
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not an integer: " + text);
+		}
+	}
+
+	private static String toDouble(String text) {
+		try {
+			return Double.valueOf(text).toString();
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a number: " + text);
+		}
+	}
+
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Patch Pre-Processor
+ * 
+ * Receives as input a JSIMG file generated by one of the pre-processors and
+ * a list of parameter changes, and outputs the changed model in a JSIMG
+ * file without generating it again
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+public class Patch_Pre_Processor {
+
+	public static void main(String argv[]) {
+		if (argv.length < 3) {
+			help();
+		}
+		try {
+			convert(new File(argv[0]), new File(argv[1]), new File(argv[2]));
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Patches a single JSIMG file. Safe to call concurrently.
+	 */
+	static void convert(File input, File delta, File output) throws SAXException, IOException {
+		JsimgPatcher.patch(input, delta, output);
+	}
+
+	private static void help() {
+		System.err.println("Usage: Patch_Pre_Processor [jsimgfilename] [deltafilename] [jsimgfilename]");
+		System.exit(0);
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import jmt.gui.common.definitions.CommonModel;
+
+/**
+ * GSPN Benchmark
+ *
+ * Measures each phase of the conversion of a GSPN: importing the PNML file
+ * with the PNML framework, building the places and transitions, connecting
+ * them and writing the JSIMG archive. The single pass conversion of the
+ * stream mode, which has no separate phases, is measured as a whole
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GspnBenchmark {
+
+	@Param({ "../PNML_Pre_Processor/examples/spark.pnml", "../PNML_Pre_Processor/examples/storm.pnml", "gspn:1000",
+			"gspn:10000" })
+	public String input;
+
+	private File file;
+	private byte[] data;
+	private Object doc;
+	private String name;
+	private CommonModel model;
+
+	@Setup
+	public void load() throws Throwable {
+		file = Inputs.resolve(input);
+		data = Files.readAllBytes(file.toPath());
+		name = file.getName().replaceFirst("\\.pnml$", ".jsimg");
+		doc = Phases.importPNML(file);
+		Object converter = Phases.buildGSPN(doc);
+		Phases.connectGSPN(converter);
+		model = Phases.getGSPNModel(converter);
+	}
+
+	@State(Scope.Thread)
+	public static class Built {
+
+		Object converter;
+
+		@Setup(Level.Invocation)
+		public void build(GspnBenchmark benchmark) throws Throwable {
+			converter = Phases.buildGSPN(benchmark.doc);
+		}
+
+	}
+
+	@Benchmark
+	public Object parse() throws Throwable {
+		return Phases.importPNML(file);
+	}
+
+	@Benchmark
+	public Object build() throws Throwable {
+		return Phases.buildGSPN(doc);
+	}
+
+	@Benchmark
+	public Object connect(Built built) throws Throwable {
+		Phases.connectGSPN(built.converter);
+		return built.converter;
+	}
+
+	@Benchmark
+	public void write() throws Throwable {
+		Phases.write(new Phases.NullOutputStream(), name, model);
+	}
+
+	@Benchmark
+	public CommonModel stream() throws Throwable {
+		return Phases.streamGSPN(new ByteArrayInputStream(data));
+	}
+
+}
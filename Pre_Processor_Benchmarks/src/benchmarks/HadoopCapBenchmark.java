@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+package benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import jmt.gui.common.definitions.CommonModel;
+
+/**
+ * HadoopCap Benchmark
+ *
+ * Measures the conversion of a HadoopCap SWN: importing the PNML file,
+ * converting it and writing the JSIMG archive. The stations of the
+ * HadoopCap template are configured and connected in the same pass, so
+ * building and connecting are measured together, import included
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HadoopCapBenchmark {
+
+	@Param({ "../PNML_Pre_Processor/examples/hadoop.pnml", "swn-HadoopCap:10", "swn-HadoopCap:40" })
+	public String input;
+
+	private File file;
+	private String name;
+	private CommonModel model;
+
+	@Setup
+	public void load() throws Throwable {
+		file = Inputs.resolve(input);
+		name = file.getName().replaceFirst("\\.pnml$", ".jsimg");
+		model = Phases.convertHadoopCap(file, false);
+	}
+
+	@Benchmark
+	public Object parse() throws Throwable {
+		return Phases.importPNML(file);
+	}
+
+	@Benchmark
+	public CommonModel convert() throws Throwable {
+		return Phases.convertHadoopCap(file, false);
+	}
+
+	@Benchmark
+	public void write() throws Throwable {
+		Phases.write(new Phases.NullOutputStream(), name, model);
+	}
+
+}
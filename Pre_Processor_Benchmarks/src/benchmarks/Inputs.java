@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+package benchmarks;
+
+import java.io.File;
+
+/**
+ * Inputs
+ *
+ * Resolves the input parameter of a benchmark. The parameter is either the
+ * path of an input file or the description of a synthetic input, given as
+ * kind:size or kind:size:degree in the terms of the model generator, e.g.
+ * gspn:10000 or dag:1000:3. Synthetic inputs are generated with the
+ * default seed into a temporary file, so that every run measures the same
+ * model
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class Inputs {
+
+	private Inputs() {
+	}
+
+	static File resolve(String input) throws Throwable {
+		String[] parts = input.split(":");
+		if (parts.length < 2 || parts.length > 3 || new File(input).exists()) {
+			return new File(input);
+		}
+		String kind = parts[0];
+		int size = Integer.parseInt(parts[1]);
+		int degree = (parts.length == 3) ? Integer.parseInt(parts[2]) : 0;
+
+		String suffix = kind.equals("dag") ? ".json" : kind.equals("mrt") ? ".xml" : ".pnml";
+		File file = File.createTempFile(input.replace(':', '-') + "-", suffix);
+		file.deleteOnExit();
+		Phases.generate(kind, size, degree, file);
+		return file;
+	}
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import jmt.gui.common.definitions.CommonModel;
+
+/**
+ * MRT Benchmark
+ *
+ * Measures each phase of the conversion of an MRT model: parsing the XML file,
+ * building the stations of the templates, connecting the templates and
+ * writing the JSIMG archive
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MrtBenchmark {
+
+	@Param({ "../MRT_Pre_Processor/examples/example1.xml", "../MRT_Pre_Processor/examples/example2.xml",
+			"../MRT_Pre_Processor/examples/example3.xml", "../MRT_Pre_Processor/examples/example4.xml", "mrt:100:2",
+			"mrt:1000:4" })
+	public String input;
+
+	private byte[] data;
+	private String name;
+	private CommonModel model;
+
+	@Setup
+	public void load() throws Throwable {
+		File file = Inputs.resolve(input);
+		data = Files.readAllBytes(file.toPath());
+		name = file.getName().replaceFirst("\\.xml$", ".jsimg");
+		Object converter = Phases.parseMRT(new ByteArrayInputStream(data));
+		Phases.buildMRT(converter);
+		Phases.connectMRT(converter);
+		model = Phases.getMRTModel(converter);
+	}
+
+	@State(Scope.Thread)
+	public static class Parsed {
+
+		Object converter;
+
+		@Setup(Level.Invocation)
+		public void parse(MrtBenchmark benchmark) throws Throwable {
+			converter = Phases.parseMRT(new ByteArrayInputStream(benchmark.data));
+		}
+
+	}
+
+	@State(Scope.Thread)
+	public static class Built {
+
+		Object converter;
+
+		@Setup(Level.Invocation)
+		public void build(MrtBenchmark benchmark) throws Throwable {
+			converter = Phases.parseMRT(new ByteArrayInputStream(benchmark.data));
+			Phases.buildMRT(converter);
+		}
+
+	}
+
+	@Benchmark
+	public Object parse() throws Throwable {
+		return Phases.parseMRT(new ByteArrayInputStream(data));
+	}
+
+	@Benchmark
+	public Object build(Parsed parsed) throws Throwable {
+		Phases.buildMRT(parsed.converter);
+		return parsed.converter;
+	}
+
+	@Benchmark
+	public Object connect(Built built) throws Throwable {
+		Phases.connectMRT(built.converter);
+		return built.converter;
+	}
+
+	@Benchmark
+	public void write() throws Throwable {
+		Phases.write(new Phases.NullOutputStream(), name, model);
+	}
+
+}
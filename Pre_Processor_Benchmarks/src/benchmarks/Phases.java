@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+import jmt.gui.common.definitions.CommonModel;
+
+/**
+ * Phases
+ *
+ * Gives the benchmarks access to the phases of each conversion. The
+ * converters are in the default package, which cannot be imported, while
+ * JMH does not accept benchmarks in the default package, so the phases are
+ * looked up once by name and called through method handles
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+final class Phases {
+
+	private static final MethodHandle DAG_PARSE = method("DagConverter", "parse", InputStream.class);
+	private static final MethodHandle DAG_BUILD = method("DagConverter", "build");
+	private static final MethodHandle DAG_CONNECT = method("DagConverter", "connect");
+	private static final MethodHandle DAG_MODEL = method("DagConverter", "getModel");
+
+	private static final MethodHandle MRT_PARSE = method("MrtConverter", "parse", InputStream.class);
+	private static final MethodHandle MRT_BUILD = method("MrtConverter", "buildMRT");
+	private static final MethodHandle MRT_CONNECT = method("MrtConverter", "connectMRT");
+	private static final MethodHandle MRT_MODEL = method("MrtConverter", "getModel");
+
+	private static final MethodHandle PNML_NEW = constructor("PnmlConverter");
+	private static final MethodHandle PNML_IMPORT = method("PnmlConverter", "importDocument", File.class);
+	private static final MethodHandle GSPN_BUILD = method("PnmlConverter", "buildGSPN",
+			type("fr.lip6.move.pnml.ptnet.hlapi.PetriNetDocHLAPI"));
+	private static final MethodHandle GSPN_CONNECT = method("PnmlConverter", "connectGSPN");
+	private static final MethodHandle GSPN_STREAM = method("PnmlConverter", "convertGSPNStream", InputStream.class,
+			File.class);
+	private static final MethodHandle PNML_MODEL = method("PnmlConverter", "getModel");
+	private static final MethodHandle HADOOPCAP_CONVERT = method("PnmlConverter", "convertHadoopCap", File.class,
+			boolean.class);
+
+	private static final MethodHandle WRITE = method("JsimgWriter", "write", OutputStream.class, String.class,
+			CommonModel.class);
+
+	private static final MethodHandle GENERATE = method("ModelGenerator", "generate", String.class, int.class,
+			int.class, long.class, File.class);
+	private static final long SEED = seed();
+
+	private Phases() {
+	}
+
+	static Object parseDAG(InputStream in) throws Throwable {
+		return DAG_PARSE.invoke(in);
+	}
+
+	static void buildDAG(Object converter) throws Throwable {
+		DAG_BUILD.invoke(converter);
+	}
+
+	static void connectDAG(Object converter) throws Throwable {
+		DAG_CONNECT.invoke(converter);
+	}
+
+	static CommonModel getDAGModel(Object converter) throws Throwable {
+		return (CommonModel) DAG_MODEL.invoke(converter);
+	}
+
+	static Object parseMRT(InputStream in) throws Throwable {
+		return MRT_PARSE.invoke(in);
+	}
+
+	static void buildMRT(Object converter) throws Throwable {
+		MRT_BUILD.invoke(converter);
+	}
+
+	static void connectMRT(Object converter) throws Throwable {
+		MRT_CONNECT.invoke(converter);
+	}
+
+	static CommonModel getMRTModel(Object converter) throws Throwable {
+		return (CommonModel) MRT_MODEL.invoke(converter);
+	}
+
+	static Object importPNML(File file) throws Throwable {
+		return PNML_IMPORT.invoke(file);
+	}
+
+	/**
+	 * Returns a new converter holding the places and transitions of the
+	 * imported document.
+	 */
+	static Object buildGSPN(Object doc) throws Throwable {
+		Object converter = PNML_NEW.invoke();
+		GSPN_BUILD.invoke(converter, doc);
+		return converter;
+	}
+
+	static void connectGSPN(Object converter) throws Throwable {
+		GSPN_CONNECT.invoke(converter);
+	}
+
+	static CommonModel getGSPNModel(Object converter) throws Throwable {
+		return (CommonModel) PNML_MODEL.invoke(converter);
+	}
+
+	static CommonModel streamGSPN(InputStream in) throws Throwable {
+		return (CommonModel) GSPN_STREAM.invoke(in, (File) null);
+	}
+
+	static CommonModel convertHadoopCap(File file, boolean reduce) throws Throwable {
+		return (CommonModel) HADOOPCAP_CONVERT.invoke(file, reduce);
+	}
+
+	static void write(OutputStream out, String name, CommonModel model) throws Throwable {
+		WRITE.invoke(out, name, model);
+	}
+
+	/**
+	 * Writes a synthetic input with the default seed of the model generator.
+	 */
+	static void generate(String kind, int size, int degree, File file) throws Throwable {
+		GENERATE.invoke(kind, size, degree, SEED, file);
+	}
+
+	private static long seed() {
+		try {
+			return type("ModelGenerator").getField("DEFAULT_SEED").getLong(null);
+		} catch (NoSuchFieldException e) {
+			throw new IllegalStateException(e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static Class<?> type(String name) {
+		try {
+			return Class.forName(name);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalStateException("Class " + name + " not found in the class path", e);
+		}
+	}
+
+	private static MethodHandle method(String className, String name, Class<?>... types) {
+		try {
+			Method method = type(className).getDeclaredMethod(name, types);
+			method.setAccessible(true);
+			return MethodHandles.lookup().unreflect(method);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Method " + className + "." + name + " not found", e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static MethodHandle constructor(String className) {
+		try {
+			Constructor<?> constructor = type(className).getDeclaredConstructor();
+			constructor.setAccessible(true);
+			return MethodHandles.lookup().unreflectConstructor(constructor);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Constructor of " + className + " not found", e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Output stream discarding everything written to it, so that the
+	 * serialisation is measured without the cost of the disk.
+	 */
+	static final class NullOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) throws IOException {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+		}
+
+	}
+
+}
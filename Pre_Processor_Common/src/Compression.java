@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression
+ *
+ * Reads and writes files compressed with gzip (".gz") or Zstandard (".zst"),
+ * chosen by the extension of the file, so that the pre-processors can take
+ * compressed inputs and write compressed JSIMG files. Files are compressed
+ * and decompressed as streams, except for the libraries that can only read
+ * files (the PNML framework), which are given an uncompressed copy of the
+ * input in a temporary file. Any other file is read and written as it is
+ *
+ * gzip is part of the JDK. Zstandard needs the zstd-jni jar in the lib
+ * folder; it is loaded only when a ".zst" file is met, so the tools run
+ * without it otherwise
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public class Compression {
+
+	public static final String GZIP = ".gz";
+	public static final String ZSTD = ".zst";
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String ZSTD_INPUT = "com.github.luben.zstd.ZstdInputStream";
+	private static final String ZSTD_OUTPUT = "com.github.luben.zstd.ZstdOutputStream";
+
+	/**
+	 * Returns the compression extension of the file, or null if it is not
+	 * compressed.
+	 */
+	public static String getExtension(File file) {
+		String name = file.getName();
+		if (name.endsWith(GZIP)) {
+			return GZIP;
+		} else if (name.endsWith(ZSTD)) {
+			return ZSTD;
+		}
+		return null;
+	}
+
+	public static boolean isCompressed(File file) {
+		return getExtension(file) != null;
+	}
+
+	/**
+	 * Returns the name of the file without its compression extension, e.g.
+	 * "model.jsimg" for "model.jsimg.gz".
+	 */
+	public static String getName(File file) {
+		String extension = getExtension(file);
+		String name = file.getName();
+		return (extension != null) ? name.substring(0, name.length() - extension.length()) : name;
+	}
+
+	/**
+	 * Opens the file for reading, decompressing it if its extension says it
+	 * is compressed. The stream is buffered.
+	 */
+	public static InputStream openInput(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return decompress(in, getExtension(file));
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		} catch (RuntimeException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Wraps the stream so that what is written to it is compressed as the
+	 * extension of the file says, or returns the stream itself if the file is
+	 * not compressed. The returned stream must be closed, which closes the
+	 * given stream too, for the compressed data to be complete.
+	 */
+	public static OutputStream compress(OutputStream out, File file) throws IOException {
+		String extension = getExtension(file);
+		if (GZIP.equals(extension)) {
+			return new GZIPOutputStream(out, BUFFER_SIZE);
+		} else if (ZSTD.equals(extension)) {
+			return (OutputStream) newZstdStream(ZSTD_OUTPUT, OutputStream.class, out);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns an uncompressed copy of the file in a temporary file, for the
+	 * libraries that can only read files, or the file itself if it is not
+	 * compressed. A copy should be deleted once read.
+	 */
+	public static File decompressToTempFile(File file) throws IOException {
+		if (!isCompressed(file)) {
+			return file;
+		}
+		String name = getName(file);
+		int dot = name.lastIndexOf('.');
+		Path temp = Files.createTempFile("preprocessor", (dot >= 0) ? name.substring(dot) : null);
+		InputStream in = openInput(file);
+		try {
+			Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		} finally {
+			in.close();
+		}
+		return temp.toFile();
+	}
+
+	private static InputStream decompress(InputStream in, String extension) throws IOException {
+		if (GZIP.equals(extension)) {
+			return new GZIPInputStream(in, BUFFER_SIZE);
+		} else if (ZSTD.equals(extension)) {
+			return new BufferedInputStream((InputStream) newZstdStream(ZSTD_INPUT, InputStream.class, in),
+					BUFFER_SIZE);
+		}
+		return new BufferedInputStream(in, BUFFER_SIZE);
+	}
+
+	private static Object newZstdStream(String className, Class<?> argument, Object stream) throws IOException {
+		Constructor<?> constructor;
+		try {
+			constructor = Class.forName(className).getConstructor(argument);
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Zstandard files need the zstd-jni jar in the lib folder", e);
+		} catch (NoSuchMethodException e) {
+			throw new IOException("Unsupported version of zstd-jni", e);
+		}
+		try {
+			return constructor.newInstance(stream);
+		} catch (InvocationTargetException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException("Cannot open a Zstandard stream", e.getCause());
+		} catch (InstantiationException e) {
+			throw new IOException("Cannot open a Zstandard stream", e);
+		} catch (IllegalAccessException e) {
+			throw new IOException("Cannot open a Zstandard stream", e);
+		}
+	}
+
+}
@@ -0,0 +1,424 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+
+import jmt.gui.common.definitions.CommonModel;
+import jmt.gui.common.xml.XMLWriter;
+
+/**
+ * JSIMG Writer
+ * 
+ * Writes a model to a JSIMG file in the same format as
+ * XMLArchiver.saveModel, but streams the archive to a buffered file channel
+ * instead of building the whole archive document and serialising it with a
+ * transformer. The sim section is still produced by XMLWriter, and each of
+ * its nodes is released as soon as it has been written
+ * 
+ * Files are written to a temporary file that then replaces the target, so
+ * that readers never see a partial file and a target that is a hard link is
+ * replaced rather than overwritten. The archive timestamp is fixed when the
+ * SOURCE_DATE_EPOCH environment variable is set or a fixed timestamp is
+ * requested by the writing thread, so that the same model always gives the
+ * same bytes
+ * 
+ * A file with a ".gz" or ".zst" extension is compressed as it is written,
+ * and the archive takes the name of the file without that extension
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+public class JsimgWriter {
+
+	private static final String ENCODING = "ISO-8859-1";
+	private static final String XSI = "http://www.w3.org/2001/XMLSchema-instance";
+	private static final String NEWLINE = System.getProperty("line.separator");
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final String JSIMG = ".jsimg";
+
+	private static final AtomicLong TEMP_COUNTER = new AtomicLong(System.nanoTime());
+
+	private static final Date SOURCE_DATE_EPOCH = getSourceDateEpoch();
+	private static final ThreadLocal<Date> fixedTimestamp = new ThreadLocal<Date>();
+
+	private static final Comparator<Attr> ATTRIBUTE_ORDER = new Comparator<Attr>() {
+		public int compare(Attr a, Attr b) {
+			boolean xmlnsA = a.getName().startsWith("xmlns");
+			boolean xmlnsB = b.getName().startsWith("xmlns");
+			if (xmlnsA != xmlnsB) {
+				return xmlnsA ? -1 : 1;
+			}
+			return a.getName().compareTo(b.getName());
+		}
+	};
+
+	private final Writer writer;
+	private final CharsetEncoder encoder = Charset.forName(ENCODING).newEncoder();
+	private long elements;
+
+	/**
+	 * Counts the bytes written through it, for the flight recorder.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+
+		public long count;
+
+		public CountingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+
+	}
+
+	private JsimgWriter(Writer writer) {
+		this.writer = writer;
+	}
+
+	public static void write(File file, CommonModel model) throws IOException {
+		Path temp = createTempFile(file);
+		try {
+			FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+			try {
+				OutputStream out = Compression.compress(Channels.newOutputStream(channel), file);
+				write(out, Compression.getName(file), model);
+				out.close();
+			} finally {
+				channel.close();
+			}
+			replace(temp, file);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Writes the model as a JSIMG archive with the given name. The stream is
+	 * flushed but not closed.
+	 */
+	public static void write(OutputStream out, String name, CommonModel model) throws IOException {
+		SerialisationEvent event = new SerialisationEvent();
+		event.begin();
+		CountingOutputStream counter = event.isEnabled() ? new CountingOutputStream(out) : null;
+		Writer writer = new BufferedWriter(new OutputStreamWriter((counter != null) ? counter : out, ENCODING),
+				BUFFER_SIZE);
+		JsimgWriter jsimg = new JsimgWriter(writer);
+		jsimg.writeArchive(name, model);
+		writer.flush();
+		jsimg.commit(event, name, counter);
+	}
+
+	/**
+	 * Writes a JSIMG archive document, such as one read from an existing
+	 * JSIMG file, in the same format. The archive takes the name of the file
+	 * and a new timestamp; everything else is written as it is.
+	 */
+	public static void write(File file, Document archive) throws IOException {
+		Path temp = createTempFile(file);
+		try {
+			FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+			try {
+				SerialisationEvent event = new SerialisationEvent();
+				event.begin();
+				OutputStream out = Compression.compress(Channels.newOutputStream(channel), file);
+				CountingOutputStream counter = event.isEnabled() ? new CountingOutputStream(out) : null;
+				Writer writer = new BufferedWriter(new OutputStreamWriter((counter != null) ? counter : out, ENCODING),
+						BUFFER_SIZE);
+				JsimgWriter jsimg = new JsimgWriter(writer);
+				jsimg.writeArchive(Compression.getName(file), archive);
+				writer.close();
+				jsimg.commit(event, Compression.getName(file), counter);
+			} finally {
+				channel.close();
+			}
+			replace(temp, file);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Fixes the timestamp of the archives written by the current thread
+	 * from now on, or lets them take the current time again if null. The
+	 * archives of other threads are not affected. A timestamp given by the
+	 * SOURCE_DATE_EPOCH environment variable cannot be overridden.
+	 */
+	public static void setFixedTimestamp(Date timestamp) {
+		if (timestamp == null) {
+			fixedTimestamp.remove();
+		} else {
+			fixedTimestamp.set(timestamp);
+		}
+	}
+
+	/**
+	 * Returns the timestamp written in the archives, formatted as JMT does.
+	 * A fixed timestamp is always formatted in UTC so that it does not depend
+	 * on the machine.
+	 */
+	public static String getTimestamp() {
+		Date fixed = (SOURCE_DATE_EPOCH != null) ? SOURCE_DATE_EPOCH : fixedTimestamp.get();
+		if (fixed == null) {
+			return new Date().toString();
+		}
+		SimpleDateFormat format = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("UTC"));
+		return format.format(fixed);
+	}
+
+	private static Date getSourceDateEpoch() {
+		String epoch = System.getenv("SOURCE_DATE_EPOCH");
+		if (epoch == null || epoch.trim().length() == 0) {
+			return null;
+		}
+		return new Date(Long.parseLong(epoch.trim()) * 1000L);
+	}
+
+	/**
+	 * Returns the file of the given model, numbered from 1, of a set written
+	 * next to the output file, e.g. model-2.jsimg for model.jsimg, or
+	 * model-2.jsimg.gz for model.jsimg.gz.
+	 */
+	public static File getNumberedFile(File output, int number) {
+		String extension = Compression.getExtension(output);
+		String name = Compression.getName(output);
+		String suffix = "-" + number;
+		if (name.endsWith(JSIMG)) {
+			name = name.substring(0, name.length() - JSIMG.length()) + suffix + JSIMG;
+		} else {
+			name = name + suffix;
+		}
+		return new File(output.getAbsoluteFile().getParentFile(), (extension != null) ? name + extension : name);
+	}
+
+	/**
+	 * Commits the flight recorder event of an archive, if it is being
+	 * recorded.
+	 */
+	private void commit(SerialisationEvent event, String name, CountingOutputStream counter) {
+		if (event.shouldCommit()) {
+			event.archive = name;
+			event.elements = elements;
+			event.bytes = (counter != null) ? counter.count : 0;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Returns a new temporary file next to the given one. Unlike
+	 * Files.createTempFile, it gets the same permissions as any other new
+	 * file.
+	 */
+	private static Path createTempFile(File file) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		while (true) {
+			Path temp = new File(dir, "." + file.getName() + "." + TEMP_COUNTER.incrementAndGet() + ".tmp").toPath();
+			try {
+				Files.newByteChannel(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+				return temp;
+			} catch (FileAlreadyExistsException e) {
+				// left by another process, try the next name
+			}
+		}
+	}
+
+	private static void replace(Path temp, File file) throws IOException {
+		try {
+			Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private void writeArchive(String name, Document archive) throws IOException {
+		writeArchiveStartTag(name);
+		for (Node child = archive.getDocumentElement().getFirstChild(); child != null; child = child.getNextSibling()) {
+			writeNode(child);
+		}
+		writer.write("</archive>");
+		writer.write(NEWLINE);
+	}
+
+	private void writeArchiveStartTag(String name) throws IOException {
+		writer.write("<?xml version=\"1.0\" encoding=\"" + ENCODING + "\" standalone=\"no\"?>");
+		writer.write(NEWLINE);
+		writer.write("<archive xmlns:xsi=\"" + XSI + "\" name=\"");
+		writeEscaped(name, true);
+		writer.write("\" timestamp=\"");
+		writeEscaped(getTimestamp(), true);
+		writer.write("\" xsi:noNamespaceSchemaLocation=\"Archive.xsd\">");
+		writer.write(NEWLINE);
+	}
+
+	private void writeArchive(String name, CommonModel model) throws IOException {
+		Document doc = XMLWriter.getDocument(model, name);
+
+		writeArchiveStartTag(name);
+
+		Element sim = doc.getDocumentElement();
+		writeStartTag(sim);
+		writer.write(">");
+		writer.write(NEWLINE);
+		Node child = sim.getFirstChild();
+		while (child != null) {
+			writeNode(child);
+			Node next = child.getNextSibling();
+			sim.removeChild(child);
+			child = next;
+		}
+		writer.write("</sim>");
+		writer.write(NEWLINE);
+
+		writer.write("<jmodel xsi:noNamespaceSchemaLocation=\"JModelGUI.xsd\"/>");
+		writer.write(NEWLINE);
+		writer.write("</archive>");
+		writer.write(NEWLINE);
+	}
+
+	private void writeNode(Node node) throws IOException {
+		if (node.getNodeType() == Node.ELEMENT_NODE) {
+			writeElement((Element) node);
+		} else if (node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+			if (node.getNodeValue().trim().length() > 0) {
+				writeEscaped(node.getNodeValue(), false);
+				writer.write(NEWLINE);
+			}
+		}
+	}
+
+	private void writeElement(Element elem) throws IOException {
+		elements++;
+		writeStartTag(elem);
+		if (!elem.hasChildNodes()) {
+			writer.write("/>");
+			writer.write(NEWLINE);
+			return;
+		}
+		writer.write(">");
+		if (hasOnlyText(elem)) {
+			for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+				writeEscaped(child.getNodeValue(), false);
+			}
+		} else {
+			writer.write(NEWLINE);
+			for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+				writeNode(child);
+			}
+		}
+		writer.write("</");
+		writer.write(elem.getTagName());
+		writer.write(">");
+		writer.write(NEWLINE);
+	}
+
+	private void writeStartTag(Element elem) throws IOException {
+		writer.write("<");
+		writer.write(elem.getTagName());
+		NamedNodeMap attributes = elem.getAttributes();
+		Attr[] sorted = new Attr[attributes.getLength()];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = (Attr) attributes.item(i);
+		}
+		Arrays.sort(sorted, ATTRIBUTE_ORDER);
+		for (Attr a : sorted) {
+			// the xsi prefix is declared once on the archive element
+			if (a.getName().equals("xmlns:xsi")) {
+				continue;
+			}
+			writer.write(" ");
+			writer.write(a.getName());
+			writer.write("=\"");
+			writeEscaped(a.getValue(), true);
+			writer.write("\"");
+		}
+	}
+
+	private static boolean hasOnlyText(Element elem) {
+		for (Node child = elem.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child.getNodeType() != Node.TEXT_NODE && child.getNodeType() != Node.CDATA_SECTION_NODE) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void writeEscaped(String text, boolean isAttribute) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '&') {
+				writer.write("&amp;");
+			} else if (c == '<') {
+				writer.write("&lt;");
+			} else if (c == '>') {
+				writer.write("&gt;");
+			} else if (c == '"' && isAttribute) {
+				writer.write("&quot;");
+			} else if ((c == '\n' || c == '\r' || c == '\t') && isAttribute) {
+				writer.write("&#" + (int) c + ";");
+			} else if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+				writer.write("&#" + text.codePointAt(i) + ";");
+				i++;
+			} else if (!encoder.canEncode(c)) {
+				writer.write("&#" + (int) c + ";");
+			} else {
+				writer.write(c);
+			}
+		}
+	}
+
+}
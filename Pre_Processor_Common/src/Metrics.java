@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+
+import jmt.gui.common.CommonConstants;
+import jmt.gui.common.definitions.CommonModel;
+
+/**
+ * Metrics
+ *
+ * Collects the cost of each phase of a conversion, as wall time, bytes
+ * allocated and time spent in garbage collection, together with the size
+ * of the resulting model, and writes them as a JSON report
+ *
+ * Phases run one after the other: beginning a phase ends the current one,
+ * and a phase begun more than once accumulates its costs. Allocations are
+ * counted over all the live threads of the JVM, so that the work of helper
+ * threads is included, and garbage collection over the whole JVM, so the
+ * report is only accurate when a single conversion runs at a time. The
+ * NONE instance collects nothing and costs nothing
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public class Metrics {
+
+	public static final Metrics NONE = new Metrics(null);
+
+	private static final String ENCODING = "UTF-8";
+
+	private final boolean enabled;
+	private final Map<String, String> attributes = new LinkedHashMap<String, String>();
+	private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+	private final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+	private Phase current;
+	private long startTime;
+	private long startAllocated;
+	private long startGCTime;
+	private long startGCCount;
+
+	private static class Phase {
+
+		public String name;
+		public long wallNanos;
+		public long allocatedBytes;
+		public long gcMillis;
+		public long gcCount;
+
+		public Phase(String name) {
+			this.name = name;
+		}
+
+	}
+
+	/**
+	 * Creates the metrics of a conversion made by the given tool.
+	 */
+	public Metrics(String tool) {
+		this.enabled = tool != null;
+		if (enabled) {
+			attributes.put("tool", tool);
+		}
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Records an attribute of the conversion, such as its input file.
+	 */
+	public void setAttribute(String name, String value) {
+		if (enabled) {
+			attributes.put(name, value);
+		}
+	}
+
+	/**
+	 * Ends the current phase, if any, and begins the named one.
+	 */
+	public void begin(String name) {
+		if (!enabled) {
+			return;
+		}
+		end();
+		current = phases.get(name);
+		if (current == null) {
+			current = new Phase(name);
+			phases.put(name, current);
+		}
+		startGCTime = getGCTime();
+		startGCCount = getGCCount();
+		startAllocated = getAllocatedBytes();
+		startTime = System.nanoTime();
+	}
+
+	/**
+	 * Ends the current phase.
+	 */
+	public void end() {
+		if (!enabled || current == null) {
+			return;
+		}
+		long endTime = System.nanoTime();
+		long endAllocated = getAllocatedBytes();
+		current.wallNanos += endTime - startTime;
+		current.allocatedBytes += Math.max(0, endAllocated - startAllocated);
+		current.gcMillis += getGCTime() - startGCTime;
+		current.gcCount += getGCCount() - startGCCount;
+		current = null;
+	}
+
+	/**
+	 * Records the size of the model: its stations, connections, classes,
+	 * transition modes and measures.
+	 */
+	public void count(CommonModel model) {
+		if (!enabled) {
+			return;
+		}
+		Vector<Object> stationKeys = model.getStationKeys();
+		long connections = 0;
+		long modes = 0;
+		for (Object key : stationKeys) {
+			connections += model.getForwardConnections(key).size();
+			if (CommonConstants.STATION_TYPE_TRANSITION.equals(model.getStationType(key))) {
+				modes += model.getTransitionModeListSize(key);
+			}
+		}
+		counts.put("stations", Long.valueOf(stationKeys.size()));
+		counts.put("connections", Long.valueOf(connections));
+		counts.put("classes", Long.valueOf(model.getClassKeys().size()));
+		counts.put("transitionModes", Long.valueOf(modes));
+		counts.put("measures", Long.valueOf(model.getMeasureKeys().size()));
+	}
+
+	/**
+	 * Writes the report to the file, ending the current phase.
+	 */
+	public void write(File file) throws IOException {
+		if (!enabled) {
+			return;
+		}
+		end();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+		try {
+			writer.write(toJSON());
+		} finally {
+			writer.close();
+		}
+	}
+
+	String toJSON() {
+		StringBuilder json = new StringBuilder("{\n");
+		for (Map.Entry<String, String> a : attributes.entrySet()) {
+			json.append("  ").append(quote(a.getKey())).append(": ").append(quote(a.getValue())).append(",\n");
+		}
+
+		List<Phase> list = new ArrayList<Phase>(phases.values());
+		Phase total = new Phase("total");
+		json.append("  \"phases\": [\n");
+		for (Phase p : list) {
+			json.append("    ").append(toJSON(p)).append(",\n");
+			total.wallNanos += p.wallNanos;
+			total.allocatedBytes += p.allocatedBytes;
+			total.gcMillis += p.gcMillis;
+			total.gcCount += p.gcCount;
+		}
+		json.append("    ").append(toJSON(total)).append("\n  ]");
+
+		if (!counts.isEmpty()) {
+			json.append(",\n  \"model\": {\n");
+			int i = 0;
+			for (Map.Entry<String, Long> c : counts.entrySet()) {
+				json.append("    ").append(quote(c.getKey())).append(": ").append(c.getValue());
+				json.append((++i < counts.size()) ? ",\n" : "\n");
+			}
+			json.append("  }");
+		}
+		return json.append("\n}\n").toString();
+	}
+
+	private static String toJSON(Phase p) {
+		return "{ \"name\": " + quote(p.name) + ", \"wallMillis\": "
+				+ String.format(Locale.US, "%.3f", Double.valueOf(p.wallNanos / 1e6)) + ", \"allocatedBytes\": "
+				+ p.allocatedBytes + ", \"gcMillis\": " + p.gcMillis + ", \"gcCount\": " + p.gcCount + " }";
+	}
+
+	static String quote(String text) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				quoted.append('\\').append(c);
+			} else if (c < 0x20) {
+				quoted.append(String.format("\\u%04x", Integer.valueOf(c)));
+			} else {
+				quoted.append(c);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the live threads, or 0 if the
+	 * JVM cannot tell.
+	 */
+	private static long getAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return 0;
+		}
+		com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+		if (!sunBean.isThreadAllocatedMemorySupported() || !sunBean.isThreadAllocatedMemoryEnabled()) {
+			return 0;
+		}
+		long total = 0;
+		for (long bytes : sunBean.getThreadAllocatedBytes(bean.getAllThreadIds())) {
+			if (bytes > 0) {
+				total += bytes;
+			}
+		}
+		return total;
+	}
+
+	private static long getGCTime() {
+		long total = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, bean.getCollectionTime());
+		}
+		return total;
+	}
+
+	private static long getGCCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, bean.getCollectionCount());
+		}
+		return total;
+	}
+
+}
@@ -0,0 +1,853 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+
+import jmt.gui.common.CommonConstants;
+import jmt.gui.common.definitions.CommonModel;
+import jmt.gui.common.distributions.Distribution;
+
+/**
+ * Model Estimator
+ *
+ * Estimates analytically the throughput and response time of each class of
+ * a model and the utilization of its stations, in a small fraction of the
+ * time of a simulation, so that candidate models can be screened before
+ * they are simulated
+ *
+ * The tasks that each job brings to the stations are found by following
+ * the connections from the reference station of its class: a fork
+ * multiplies them by its tasks per link, a join gathers them back into the
+ * jobs that entered the fork it closes, a scaler does both, and any other
+ * station splits them evenly between its outputs. Queueing is estimated by
+ * mixed mean value analysis, with the Schweitzer approximation for closed
+ * classes and the Seidmann approximation for queues with several servers.
+ * The time between a fork and the station that joins its branches is the
+ * expected maximum of the times of the branches, taken as independent
+ * exponentials. A semaphore is a partial join: each task of a job leaves
+ * it at the later of its own arrival and the arrival of the threshold-th
+ * task of the job, for the threshold of its class, so the stations after
+ * it are reached sooner the lower the threshold, while a join closing the
+ * fork still waits for the last task. Only mean service times are used,
+ * and stations other than queues and delays take no time. A class whose connections form a cycle
+ * away from its reference station is estimated by the sum of its residence
+ * times, without synchronisation
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public class ModelEstimator {
+
+	private static final String ENCODING = "UTF-8";
+	private static final String JSIMG = ".jsimg";
+	private static final String EXTENSION = ".estimate.json";
+	private static final int MAX_ITERATIONS = 1000;
+	private static final double TOLERANCE = 1e-6;
+	private static final double DAMPING = 0.5;
+	private static final double MIN_IDLE = 1e-3;
+	private static final int INTERVALS = 512;
+
+	private static final int OTHER = 0;
+	private static final int QUEUE = 1;
+	private static final int DELAY = 2;
+	private static final int FORK = 3;
+	private static final int JOIN = 4;
+	private static final int SCALER = 5;
+	private static final int SOURCE = 6;
+	private static final int SINK = 7;
+	private static final int SEMAPHORE = 8;
+
+	private final CommonModel model;
+	private final Vector<Object> stationKeys;
+	private final Map<Object, Integer> index = new HashMap<Object, Integer>();
+	private final int[] kinds;
+	private final int[] servers;
+	private final int[][] outputs;
+	private final List<Flow> flows = new ArrayList<Flow>();
+	private final double[] utilization;
+	private int iterations;
+
+	/**
+	 * The route of a class through the stations, and its estimates.
+	 */
+	private static class Flow {
+
+		public Object key;
+		public boolean open;
+		public double arrivalRate;
+		public int population;
+		public int entry = -1;
+		public boolean acyclic;
+		public int[] order;
+		public double[] visits;
+		public double[] service;
+		public int[] context;
+		public int[] closes;
+		public int[] enclosing;
+		public int[] thresholds;
+		public List<int[]> edges = new ArrayList<int[]>();
+		public List<Double> edgeFlows = new ArrayList<Double>();
+		public List<Integer> exits = new ArrayList<Integer>();
+		public List<Double> exitFlows = new ArrayList<Double>();
+		public double[] residence;
+		public double[] queue;
+		public double throughput;
+		public double cycleTime;
+		public double responseTime = Double.NaN;
+		public boolean saturated;
+
+		public Flow(Object key, int stations) {
+			this.key = key;
+			visits = new double[stations];
+			service = new double[stations];
+			residence = new double[stations];
+			queue = new double[stations];
+			thresholds = new int[stations];
+		}
+
+	}
+
+	private ModelEstimator(CommonModel model) {
+		this.model = model;
+		stationKeys = model.getStationKeys();
+		int n = stationKeys.size();
+		kinds = new int[n];
+		servers = new int[n];
+		outputs = new int[n][];
+		utilization = new double[n];
+		for (int s = 0; s < n; s++) {
+			index.put(stationKeys.get(s), Integer.valueOf(s));
+		}
+		for (int s = 0; s < n; s++) {
+			Object key = stationKeys.get(s);
+			kinds[s] = getKind(model.getStationType(key));
+			Integer number = model.getStationNumberOfServers(key);
+			servers[s] = (number == null) ? 1 : number.intValue();
+			List<Integer> targets = new ArrayList<Integer>();
+			Vector<Object> connections = model.getForwardConnections(key);
+			if (connections != null) {
+				for (Object target : connections) {
+					Integer t = index.get(target);
+					if (t != null) {
+						targets.add(t);
+					}
+				}
+			}
+			outputs[s] = new int[targets.size()];
+			for (int i = 0; i < outputs[s].length; i++) {
+				outputs[s][i] = targets.get(i).intValue();
+			}
+		}
+	}
+
+	/**
+	 * Estimates the model, which is only read.
+	 */
+	public static ModelEstimator estimate(CommonModel model) {
+		ModelEstimator estimator = new ModelEstimator(model);
+		for (Object classKey : model.getClassKeys()) {
+			estimator.flows.add(estimator.getFlow(classKey));
+		}
+		estimator.solve();
+		return estimator;
+	}
+
+	/**
+	 * Returns the file where the estimate of the model written to the given
+	 * JSIMG file goes: next to it, with the .estimate.json extension.
+	 */
+	public static File getEstimateFile(File output) {
+		String name = Compression.getName(output);
+		if (name.endsWith(JSIMG)) {
+			name = name.substring(0, name.length() - JSIMG.length());
+		}
+		return new File(output.getAbsoluteFile().getParentFile(), name + EXTENSION);
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Returns the estimated throughput of the class, or NaN if it cannot be
+	 * estimated.
+	 */
+	public double getThroughput(Object classKey) {
+		Flow flow = findFlow(classKey);
+		return (flow == null || flow.entry < 0 || flow.saturated) ? Double.NaN : flow.throughput;
+	}
+
+	/**
+	 * Returns the estimated response time of the class, or NaN if it cannot
+	 * be estimated or the class saturates a station.
+	 */
+	public double getResponseTime(Object classKey) {
+		Flow flow = findFlow(classKey);
+		return (flow == null || flow.saturated) ? Double.NaN : flow.responseTime;
+	}
+
+	public boolean isSaturated(Object classKey) {
+		Flow flow = findFlow(classKey);
+		return flow != null && flow.saturated;
+	}
+
+	public double getUtilization(Object stationKey) {
+		Integer s = index.get(stationKey);
+		return (s == null) ? Double.NaN : utilization[s.intValue()];
+	}
+
+	/**
+	 * Writes the estimate to the file as JSON.
+	 */
+	public void write(File file) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+		try {
+			writer.write(toJSON());
+		} finally {
+			writer.close();
+		}
+	}
+
+	String toJSON() {
+		StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"iterations\": ").append(iterations).append(",\n");
+		json.append("  \"classes\": [\n");
+		for (int i = 0; i < flows.size(); i++) {
+			Flow flow = flows.get(i);
+			json.append("    { \"name\": ").append(Metrics.quote(model.getClassName(flow.key)));
+			if (flow.open) {
+				json.append(", \"type\": \"open\", \"arrivalRate\": ").append(number(flow.arrivalRate));
+			} else {
+				json.append(", \"type\": \"closed\", \"population\": ").append(flow.population);
+			}
+			json.append(", \"throughput\": ").append(number(getThroughput(flow.key)));
+			json.append(", \"responseTime\": ").append(number(getResponseTime(flow.key)));
+			json.append(", \"saturated\": ").append(flow.saturated).append(" }");
+			json.append((i + 1 < flows.size()) ? ",\n" : "\n");
+		}
+		json.append("  ],\n  \"stations\": [\n");
+		int bottleneck = -1;
+		List<String> stations = new ArrayList<String>();
+		for (int s = 0; s < kinds.length; s++) {
+			if (kinds[s] == QUEUE || kinds[s] == DELAY) {
+				stations.add("    { \"name\": " + Metrics.quote(model.getStationName(stationKeys.get(s)))
+						+ ", \"utilization\": " + number(utilization[s]) + " }");
+				if (kinds[s] == QUEUE && servers[s] > 0 && utilization[s] > 0
+						&& (bottleneck < 0 || utilization[s] > utilization[bottleneck])) {
+					bottleneck = s;
+				}
+			}
+		}
+		for (int i = 0; i < stations.size(); i++) {
+			json.append(stations.get(i)).append((i + 1 < stations.size()) ? ",\n" : "\n");
+		}
+		json.append("  ],\n  \"bottleneck\": ");
+		json.append((bottleneck < 0) ? "null" : Metrics.quote(model.getStationName(stationKeys.get(bottleneck))));
+		return json.append("\n}\n").toString();
+	}
+
+	private static String number(double value) {
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return "null";
+		}
+		return new BigDecimal(value).round(new MathContext(6)).stripTrailingZeros().toPlainString();
+	}
+
+	private static int getKind(String type) {
+		if (CommonConstants.STATION_TYPE_SERVER.equals(type)) {
+			return QUEUE;
+		} else if (CommonConstants.STATION_TYPE_DELAY.equals(type)) {
+			return DELAY;
+		} else if (CommonConstants.STATION_TYPE_FORK.equals(type)) {
+			return FORK;
+		} else if (CommonConstants.STATION_TYPE_JOIN.equals(type)) {
+			return JOIN;
+		} else if (CommonConstants.STATION_TYPE_SCALER.equals(type)) {
+			return SCALER;
+		} else if (CommonConstants.STATION_TYPE_SOURCE.equals(type)) {
+			return SOURCE;
+		} else if (CommonConstants.STATION_TYPE_SINK.equals(type)) {
+			return SINK;
+		} else if (CommonConstants.STATION_TYPE_SEMAPHORE.equals(type)) {
+			return SEMAPHORE;
+		}
+		return OTHER;
+	}
+
+	private Flow findFlow(Object classKey) {
+		for (Flow flow : flows) {
+			if (flow.key.equals(classKey)) {
+				return flow;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Finds the route of the class: the stations it reaches from its
+	 * reference station, and the tasks each job brings to them.
+	 */
+	private Flow getFlow(Object classKey) {
+		int n = kinds.length;
+		Flow flow = new Flow(classKey, n);
+		flow.open = model.getClassType(classKey) == CommonConstants.CLASS_TYPE_OPEN;
+		if (flow.open) {
+			flow.arrivalRate = getRate(model.getClassDistribution(classKey));
+		} else {
+			Integer population = model.getClassPopulation(classKey);
+			flow.population = (population == null) ? 0 : population.intValue();
+		}
+
+		Integer entry = index.get(model.getClassRefStation(classKey));
+		if (entry == null && flow.open) {
+			for (int s = 0; s < n && entry == null; s++) {
+				if (kinds[s] == SOURCE) {
+					entry = Integer.valueOf(s);
+				}
+			}
+		}
+		if (entry == null) {
+			return flow;
+		}
+		flow.entry = entry.intValue();
+
+		boolean[] reached = new boolean[n];
+		int[] inputs = new int[n];
+		ArrayDeque<Integer> pending = new ArrayDeque<Integer>();
+		reached[flow.entry] = true;
+		pending.add(entry);
+		int count = 0;
+		while (!pending.isEmpty()) {
+			int s = pending.poll().intValue();
+			count++;
+			if (kinds[s] == SINK) {
+				continue;
+			}
+			for (int t : outputs[s]) {
+				if (t == flow.entry) {
+					continue;
+				}
+				inputs[t]++;
+				if (!reached[t]) {
+					reached[t] = true;
+					pending.add(Integer.valueOf(t));
+				}
+			}
+		}
+
+		int[] order = new int[count];
+		int ordered = 0;
+		pending.add(entry);
+		while (!pending.isEmpty()) {
+			int s = pending.poll().intValue();
+			order[ordered++] = s;
+			if (kinds[s] == SINK) {
+				continue;
+			}
+			for (int t : outputs[s]) {
+				if (t != flow.entry && --inputs[t] == 0) {
+					pending.add(Integer.valueOf(t));
+				}
+			}
+		}
+		flow.acyclic = ordered == count;
+		flow.order = order;
+		if (!flow.acyclic) {
+			flow.order = new int[count];
+			ordered = 0;
+			for (int s = 0; s < n; s++) {
+				if (reached[s]) {
+					flow.order[ordered++] = s;
+				}
+			}
+		}
+
+		for (int s : flow.order) {
+			if (kinds[s] == QUEUE || kinds[s] == DELAY) {
+				flow.service[s] = getMean(model.getServiceTimeDistribution(stationKeys.get(s), classKey));
+			} else if (kinds[s] == SEMAPHORE) {
+				Integer threshold = model.getSemaphoreThreshold(stationKeys.get(s), classKey);
+				flow.thresholds[s] = (threshold == null) ? 0 : threshold.intValue();
+			}
+		}
+		if (flow.acyclic) {
+			propagate(flow);
+		} else {
+			iterate(flow, reached);
+		}
+		return flow;
+	}
+
+	/**
+	 * Counts the tasks each job brings to the stations of an acyclic route,
+	 * in topological order, keeping track of the fork each station is in.
+	 */
+	private void propagate(Flow flow) {
+		int n = kinds.length;
+		flow.context = new int[n];
+		flow.closes = new int[n];
+		flow.enclosing = new int[n];
+		Arrays.fill(flow.context, -2);
+		Arrays.fill(flow.closes, -1);
+		Arrays.fill(flow.enclosing, -1);
+		flow.context[flow.entry] = -1;
+		flow.visits[flow.entry] = 1;
+
+		for (int s : flow.order) {
+			double visits = flow.visits[s];
+			int context = flow.context[s];
+			double out;
+			int next;
+			int links = outputs[s].length;
+			if (kinds[s] == FORK) {
+				out = visits * Math.max(1, servers[s]);
+				flow.enclosing[s] = context;
+				next = s;
+			} else if (kinds[s] == JOIN || kinds[s] == SCALER) {
+				double jobs = visits;
+				next = -1;
+				if (context >= 0) {
+					flow.closes[s] = context;
+					jobs = flow.visits[context];
+					next = flow.enclosing[context];
+				}
+				if (kinds[s] == SCALER) {
+					out = jobs * Math.max(1, servers[s]);
+					flow.enclosing[s] = next;
+					next = s;
+				} else {
+					out = (links > 0) ? jobs / links : jobs;
+				}
+			} else {
+				out = (links > 0) ? visits / links : visits;
+				next = context;
+			}
+
+			if (kinds[s] == SINK || links == 0) {
+				flow.exits.add(Integer.valueOf(s));
+				flow.exitFlows.add(Double.valueOf(out));
+				continue;
+			}
+			for (int t : outputs[s]) {
+				if (t == flow.entry) {
+					flow.exits.add(Integer.valueOf(s));
+					flow.exitFlows.add(Double.valueOf(out));
+					continue;
+				}
+				flow.visits[t] += out;
+				flow.edges.add(new int[] { s, t });
+				flow.edgeFlows.add(Double.valueOf(out));
+				if (flow.context[t] == -2) {
+					flow.context[t] = next;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Counts the tasks each job brings to the stations of a route with
+	 * cycles, by iterating the balance of the flows until it settles. A
+	 * join takes as many tasks as it has inputs to complete a job.
+	 */
+	private void iterate(Flow flow, boolean[] reached) {
+		int n = kinds.length;
+		int[] inputs = new int[n];
+		for (int s : flow.order) {
+			if (kinds[s] != SINK) {
+				for (int t : outputs[s]) {
+					inputs[t]++;
+				}
+			}
+		}
+		double[] visits = flow.visits;
+		for (int pass = 0; pass < MAX_ITERATIONS; pass++) {
+			double[] next = new double[n];
+			next[flow.entry] = 1;
+			for (int s : flow.order) {
+				if (kinds[s] == SINK || outputs[s].length == 0) {
+					continue;
+				}
+				double out = visits[s];
+				if (kinds[s] == JOIN || kinds[s] == SCALER) {
+					out /= Math.max(1, inputs[s]);
+				}
+				if (kinds[s] == FORK || kinds[s] == SCALER) {
+					out *= Math.max(1, servers[s]);
+				} else {
+					out /= outputs[s].length;
+				}
+				for (int t : outputs[s]) {
+					if (t != flow.entry) {
+						next[t] += out;
+					}
+				}
+			}
+			double change = 0;
+			for (int s : flow.order) {
+				change = Math.max(change, Math.abs(next[s] - visits[s]) / Math.max(1, next[s]));
+				visits[s] = next[s];
+			}
+			if (change < TOLERANCE) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Iterates mean value analysis over all the classes until the
+	 * throughputs and response times settle.
+	 */
+	private void solve() {
+		int n = kinds.length;
+		double[] openLoad = new double[n];
+		for (Flow flow : flows) {
+			if (flow.entry < 0) {
+				continue;
+			}
+			if (flow.open) {
+				flow.throughput = flow.arrivalRate;
+				for (int s : flow.order) {
+					if (kinds[s] == QUEUE && servers[s] > 0) {
+						openLoad[s] += flow.arrivalRate * flow.visits[s] * flow.service[s] / servers[s];
+					}
+				}
+			}
+		}
+		for (Flow flow : flows) {
+			if (flow.open && flow.entry >= 0) {
+				for (int s : flow.order) {
+					if (openLoad[s] >= 1 && flow.visits[s] * flow.service[s] > 0) {
+						flow.saturated = true;
+					}
+				}
+			}
+		}
+
+		double[] closedQueue = new double[n];
+		for (iterations = 1; iterations <= MAX_ITERATIONS; iterations++) {
+			Arrays.fill(closedQueue, 0);
+			for (Flow flow : flows) {
+				if (!flow.open && flow.entry >= 0) {
+					for (int s : flow.order) {
+						closedQueue[s] += flow.queue[s];
+					}
+				}
+			}
+
+			double change = 0;
+			for (Flow flow : flows) {
+				if (flow.entry < 0) {
+					continue;
+				}
+				for (int s : flow.order) {
+					flow.residence[s] = getResidence(flow, s, openLoad[s], closedQueue[s]);
+				}
+				double cycleTime = flow.acyclic ? getCycleTime(flow) : getTotalTime(flow);
+				double response = cycleTime - (flow.open ? 0 : flow.residence[flow.entry]);
+				change = Math.max(change, getChange(flow.responseTime, response));
+				flow.cycleTime = cycleTime;
+				flow.responseTime = response;
+				if (!flow.open) {
+					double throughput = (cycleTime > 0) ? flow.population / cycleTime : 0;
+					if (iterations > 1) {
+						throughput = DAMPING * throughput + (1 - DAMPING) * flow.throughput;
+					}
+					change = Math.max(change, getChange(flow.throughput, throughput));
+					flow.throughput = throughput;
+				}
+				for (int s : flow.order) {
+					flow.queue[s] = flow.throughput * flow.visits[s] * flow.residence[s];
+				}
+			}
+			if (iterations > 1 && change < TOLERANCE) {
+				break;
+			}
+		}
+		iterations = Math.min(iterations, MAX_ITERATIONS);
+
+		for (Flow flow : flows) {
+			if (flow.entry < 0) {
+				continue;
+			}
+			for (int s : flow.order) {
+				double demand = flow.throughput * flow.visits[s] * flow.service[s];
+				if (kinds[s] == QUEUE && servers[s] > 0) {
+					utilization[s] += demand / servers[s];
+				} else if (kinds[s] == QUEUE || kinds[s] == DELAY) {
+					utilization[s] += demand;
+				}
+			}
+		}
+	}
+
+	private static double getChange(double previous, double current) {
+		if (Double.isNaN(previous)) {
+			return Double.POSITIVE_INFINITY;
+		}
+		return Math.abs(current - previous) / Math.max(Math.abs(current), 1e-12);
+	}
+
+	/**
+	 * Returns the time a task of the class spends at the station, queueing
+	 * behind the other tasks and in service.
+	 */
+	private double getResidence(Flow flow, int s, double openLoad, double closedQueue) {
+		double service = flow.service[s];
+		if (service <= 0) {
+			return 0;
+		}
+		int m = servers[s];
+		if (kinds[s] == DELAY || m <= 0) {
+			return service;
+		}
+		double others = closedQueue;
+		if (!flow.open && flow.population > 0) {
+			others -= flow.queue[s] / flow.population;
+		}
+		double idle = Math.max(MIN_IDLE, 1 - openLoad);
+		return service / m * (1 + Math.max(0, others)) / idle + service * (m - 1) / m;
+	}
+
+	/**
+	 * Returns the time from the arrival of a job at the reference station
+	 * to its departure along an acyclic route, synchronising the branches
+	 * of each fork where they join or merge. The departure of a station is
+	 * that of the last task of the job, and a semaphore also gives the mean
+	 * time its tasks are released, which the stations after it that do not
+	 * synchronise the fork are reached at.
+	 */
+	private double getCycleTime(Flow flow) {
+		int n = kinds.length;
+		double[] arrival = new double[n];
+		double[] departure = new double[n];
+		double[] released = new double[n];
+		List<List<Integer>> inputs = new ArrayList<List<Integer>>(n);
+		for (int s = 0; s < n; s++) {
+			inputs.add(null);
+		}
+		for (int i = 0; i < flow.edges.size(); i++) {
+			int t = flow.edges.get(i)[1];
+			if (inputs.get(t) == null) {
+				inputs.set(t, new ArrayList<Integer>());
+			}
+			inputs.get(t).add(Integer.valueOf(i));
+		}
+
+		for (int s : flow.order) {
+			List<Integer> in = inputs.get(s);
+			double release = Double.NaN;
+			if (s != flow.entry && in != null) {
+				int fork = flow.closes[s];
+				if (fork < 0 && (in.size() > 1 || kinds[s] == SEMAPHORE)) {
+					fork = flow.context[s];
+				}
+				if (fork >= 0) {
+					double[] delays = new double[in.size()];
+					for (int i = 0; i < delays.length; i++) {
+						int p = flow.edges.get(in.get(i).intValue())[0];
+						delays[i] = Math.max(0, departure[p] - departure[fork]);
+					}
+					arrival[s] = departure[fork] + getExpectedMaximum(delays);
+					if (kinds[s] == SEMAPHORE) {
+						release = Math.min(arrival[s], departure[fork]
+								+ getMeanRelease(getTaskDelays(flow, in, delays, fork), flow.thresholds[s]));
+					}
+				} else {
+					double weighted = 0;
+					double total = 0;
+					for (Integer i : in) {
+						double f = flow.edgeFlows.get(i.intValue()).doubleValue();
+						weighted += f * released[flow.edges.get(i.intValue())[0]];
+						total += f;
+					}
+					arrival[s] = (total > 0) ? weighted / total : 0;
+				}
+			}
+			double completion = flow.residence[s];
+			if (kinds[s] == QUEUE && servers[s] > 0 && flow.visits[s] > 1) {
+				completion += (flow.visits[s] - 1) * flow.service[s] / servers[s];
+			}
+			departure[s] = arrival[s] + completion;
+			released[s] = Double.isNaN(release) ? departure[s] : release;
+		}
+
+		double weighted = 0;
+		double total = 0;
+		for (int i = 0; i < flow.exits.size(); i++) {
+			double f = flow.exitFlows.get(i).doubleValue();
+			weighted += f * departure[flow.exits.get(i).intValue()];
+			total += f;
+		}
+		return (total > 0) ? weighted / total : 0;
+	}
+
+	/**
+	 * Returns the delay of each task a job brings to a station from the
+	 * fork it is in. The last task of each input arrives with the delay of
+	 * the input, and the tasks before it one service of a server apart if
+	 * the input is a queue, at the same time otherwise.
+	 */
+	private double[] getTaskDelays(Flow flow, List<Integer> in, double[] delays, int fork) {
+		int[] tasks = new int[delays.length];
+		int total = 0;
+		for (int i = 0; i < delays.length; i++) {
+			double f = flow.edgeFlows.get(in.get(i).intValue()).doubleValue();
+			tasks[i] = (flow.visits[fork] > 0) ? Math.max(1, (int) Math.round(f / flow.visits[fork])) : 1;
+			total += tasks[i];
+		}
+		double[] taskDelays = new double[total];
+		int t = 0;
+		for (int i = 0; i < delays.length; i++) {
+			int p = flow.edges.get(in.get(i).intValue())[0];
+			double gap = (kinds[p] == QUEUE && servers[p] > 0) ? flow.service[p] / servers[p] : 0;
+			for (int j = tasks[i] - 1; j >= 0; j--) {
+				taskDelays[t++] = Math.max(0, delays[i] - j * gap);
+			}
+		}
+		return taskDelays;
+	}
+
+	private static double getTotalTime(Flow flow) {
+		double total = 0;
+		for (int s : flow.order) {
+			total += flow.visits[s] * flow.residence[s];
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the expected maximum of independent exponential times with
+	 * the given means, integrating its complementary distribution by
+	 * Simpson's rule.
+	 */
+	static double getExpectedMaximum(double[] means) {
+		int positive = 0;
+		double largest = 0;
+		for (double mean : means) {
+			if (mean > 0) {
+				positive++;
+				largest = Math.max(largest, mean);
+			}
+		}
+		if (positive <= 1) {
+			return largest;
+		}
+		double upper = largest * (Math.log(positive) + 30);
+		double step = upper / INTERVALS;
+		double sum = 1 + getSurvival(means, upper);
+		for (int k = 1; k < INTERVALS; k++) {
+			sum += ((k % 2 == 1) ? 4 : 2) * getSurvival(means, k * step);
+		}
+		return sum * step / 3;
+	}
+
+	/**
+	 * Returns the mean time at which tasks arriving after independent
+	 * exponential times with the given means leave a semaphore that holds
+	 * them until the threshold number of them have arrived: each task
+	 * leaves at the later of its own arrival and the arrival of the
+	 * threshold-th task. A threshold above the number of tasks is taken as
+	 * all of them.
+	 */
+	static double getMeanRelease(double[] means, int threshold) {
+		int n = means.length;
+		double largest = 0;
+		for (double mean : means) {
+			largest = Math.max(largest, mean);
+		}
+		if (n == 0 || largest <= 0) {
+			return 0;
+		}
+		int k = Math.max(1, Math.min(threshold, n));
+		double upper = largest * (Math.log(n) + 30);
+		double step = upper / INTERVALS;
+		double sum = getHeld(means, k, 0) + getHeld(means, k, upper);
+		for (int i = 1; i < INTERVALS; i++) {
+			sum += ((i % 2 == 1) ? 4 : 2) * getHeld(means, k, i * step);
+		}
+		return sum * step / 3 / n;
+	}
+
+	/**
+	 * Returns the expected number of tasks not yet released at the time:
+	 * all of them while fewer than k have arrived, and afterwards those
+	 * still to arrive, i.e. k P(N < k) plus P(N < j) for each j above k,
+	 * where N is the number of tasks arrived.
+	 */
+	private static double getHeld(double[] means, int k, double time) {
+		int n = means.length;
+		double[] arrived = new double[n + 1];
+		arrived[0] = 1;
+		for (int i = 0; i < n; i++) {
+			double p = (means[i] > 0) ? 1 - Math.exp(-time / means[i]) : 1;
+			for (int j = i + 1; j > 0; j--) {
+				arrived[j] = arrived[j] * (1 - p) + arrived[j - 1] * p;
+			}
+			arrived[0] *= 1 - p;
+		}
+		double below = 0;
+		double held = 0;
+		for (int j = 1; j <= n; j++) {
+			below += arrived[j - 1];
+			if (j == k) {
+				held += k * below;
+			} else if (j > k) {
+				held += below;
+			}
+		}
+		return held;
+	}
+
+	private static double getSurvival(double[] means, double time) {
+		double product = 1;
+		for (double mean : means) {
+			if (mean > 0) {
+				product *= 1 - Math.exp(-time / mean);
+			}
+		}
+		return 1 - product;
+	}
+
+	private static double getMean(Object distribution) {
+		if (!(distribution instanceof Distribution)) {
+			return 0;
+		}
+		double mean = ((Distribution) distribution).getMean();
+		return (mean > 0 && !Double.isInfinite(mean)) ? mean : 0;
+	}
+
+	private static double getRate(Object distribution) {
+		double mean = getMean(distribution);
+		return (mean > 0) ? 1 / mean : 0;
+	}
+
+}
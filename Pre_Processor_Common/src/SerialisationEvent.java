@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Serialisation Event
+ *
+ * JDK Flight Recorder event for the writing of a JSIMG archive, with the
+ * name of the archive, the elements written and the bytes written
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+@Name("dice.preprocessor.Serialisation")
+@Label("JSIMG Serialisation")
+@Category({ "DICE", "Pre-Processors" })
+@Description("Writing of a JSIMG archive")
+final class SerialisationEvent extends jdk.jfr.Event {
+
+	@Label("Archive")
+	String archive;
+
+	@Label("Elements")
+	long elements;
+
+	@Label("Written")
+	@DataAmount
+	long bytes;
+
+}
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tokenizer
+ * 
+ * Splits the request, manifest and delta lines read by the pre-processors
+ * into their arguments
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+public class Tokenizer {
+
+	private Tokenizer() {
+	}
+
+	/**
+	 * Splits a line on whitespace, keeping text enclosed in double quotes
+	 * together.
+	 */
+	public static List<String> tokenize(String line) {
+		List<String> tokens = new ArrayList<String>();
+		StringBuilder token = null;
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (c == '"') {
+				quoted = !quoted;
+				if (token == null) {
+					token = new StringBuilder();
+				}
+			} else if (Character.isWhitespace(c) && !quoted) {
+				if (token != null) {
+					tokens.add(token.toString());
+					token = null;
+				}
+			} else {
+				if (token == null) {
+					token = new StringBuilder();
+				}
+				token.append(c);
+			}
+		}
+		if (token != null) {
+			tokens.add(token.toString());
+		}
+		return tokens;
+	}
+
+}
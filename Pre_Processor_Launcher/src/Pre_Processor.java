@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * Pre-Processor
+ *
+ * Runs any of the pre-processors from a single jar, chosen by a subcommand
+ * (dag, mrt, gspn, swn-HadoopCap, ...), with the arguments of the tool
+ *
+ * Only the classes of the chosen tool are loaded, so a DAG conversion never
+ * loads the PNML framework or logback. The train subcommand converts the
+ * bundled examples with every tool, as the training run that generates the
+ * class-data sharing archive shipped with the launcher
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+public class Pre_Processor {
+
+	private static final String[] PNML_MODES = { "gspn", "gspn-stream", "gspn-reduced", "swn", "swn-HadoopCap",
+			"swn-HadoopCap-approx" };
+
+	public static void main(String argv[]) {
+		if (argv.length < 1) {
+			help();
+		}
+		String command = argv[0];
+		String[] args = Arrays.copyOfRange(argv, 1, argv.length);
+		if (command.equals("dag")) {
+			DAG_Pre_Processor.main(args);
+		} else if (command.equals("mrt")) {
+			MRT_Pre_Processor.main(args);
+		} else if (Arrays.asList(PNML_MODES).contains(command)) {
+			PNML_Pre_Processor.main(getPnmlArguments(command, args));
+		} else if (command.equals("patch")) {
+			Patch_Pre_Processor.main(args);
+		} else if (command.equals("batch")) {
+			Batch_Pre_Processor.main(args);
+		} else if (command.equals("server")) {
+			Pre_Processor_Server.main(args);
+		} else if (command.equals("train")) {
+			train((args.length > 0) ? new File(args[0]) : getRootDir());
+		} else {
+			help();
+		}
+	}
+
+	private static void help() {
+		System.err.println("Usage: Pre_Processor dag|mrt|gspn|gspn-stream|gspn-reduced|swn|swn-HadoopCap"
+				+ "|swn-HadoopCap-approx|patch|batch|server [arguments of the tool]");
+		System.err.println("       Pre_Processor train [repositoryfolder]");
+		System.exit(0);
+	}
+
+	/**
+	 * Moves the mode of the PNML pre-processor after its options, e.g.
+	 * "--metrics m.json in.pnml out.jsimg" in the gspn mode becomes
+	 * "--metrics m.json gspn in.pnml out.jsimg".
+	 */
+	private static String[] getPnmlArguments(String mode, String[] args) {
+		int first = 0;
+		while (first < args.length && args[first].startsWith("--")) {
+			first += args[first].equals("--metrics") ? 2 : 1;
+		}
+		first = Math.min(first, args.length);
+		List<String> list = new ArrayList<String>(Arrays.asList(args));
+		list.add(first, mode);
+		return list.toArray(new String[list.size()]);
+	}
+
+	/**
+	 * Converts the examples bundled in the repository folder with every
+	 * tool, into a temporary folder that is deleted afterwards, so that the
+	 * classes of all the tools are loaded. A failed conversion is reported
+	 * and the others still run.
+	 */
+	private static void train(File root) {
+		File temp;
+		try {
+			temp = File.createTempFile("pre-processor", "");
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		temp.delete();
+		temp.mkdirs();
+
+		String dag = new File(root, "DAG_Pre_Processor/examples/example.json").getPath();
+		String jsimg = new File(root, "DAG_Pre_Processor/examples/example.jsimg").getPath();
+		String mrt = new File(root, "MRT_Pre_Processor/examples").getPath();
+		String pnml = new File(root, "PNML_Pre_Processor/examples").getPath();
+		String delta = new File(root, "Patch_Pre_Processor/examples/example.delta").getPath();
+		String out = temp.getPath();
+		String[][] requests = {
+				{ "dag", dag, out + "/dag.jsimg" },
+				{ "mrt", mrt + "/example1.xml", out + "/mrt.jsimg" },
+				{ "mrt", mrt + "/example3.xml", out + "/mrt.jsimg.gz" },
+				{ "patch", jsimg, delta, out + "/patched.jsimg" },
+				{ "gspn", pnml + "/spark.pnml", out + "/gspn.jsimg", pnml + "/spark.idx" },
+				{ "gspn-stream", pnml + "/storm.pnml", out + "/gspn-stream.jsimg", pnml + "/storm.idx" },
+				{ "gspn-reduced", pnml + "/spark.pnml", out + "/gspn-reduced.jsimg", pnml + "/spark.idx" },
+				{ "swn-HadoopCap", pnml + "/hadoop.pnml", out + "/swn-HadoopCap.jsimg" },
+				{ "swn-HadoopCap-approx", pnml + "/hadoop.pnml", out + "/swn-HadoopCap-approx.jsimg" },
+				{ "swn", pnml + "/hadoop.pnml", out + "/swn.jsimg" } };
+		int failures = 0;
+		for (String[] request : requests) {
+			long start = System.nanoTime();
+			try {
+				Conversions.convert(request[0], Arrays.asList(request).subList(1, request.length));
+				System.err.println("OK " + request[0] + " " + Conversions.millis(System.nanoTime() - start));
+			} catch (Exception e) {
+				System.err.println("ERROR " + request[0] + " " + e.getMessage());
+				failures++;
+			}
+		}
+		try {
+			long start = System.nanoTime();
+			DAG_Pre_Processor.convert(new File(dag), new File(temp, "estimated.jsimg"), Metrics.NONE, true);
+			System.err.println("OK dag --estimate " + Conversions.millis(System.nanoTime() - start));
+		} catch (Exception e) {
+			System.err.println("ERROR dag --estimate " + e.getMessage());
+			failures++;
+		}
+		for (File file : temp.listFiles()) {
+			file.delete();
+		}
+		temp.delete();
+		stopLogging();
+		if (failures > 0) {
+			System.exit(1);
+		}
+	}
+
+	private static void stopLogging() {
+		((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+	}
+
+	/**
+	 * Returns the repository folder: the parent of the folder holding the
+	 * launcher jar or classes, if it holds the tools, or else the working
+	 * directory.
+	 */
+	private static File getRootDir() {
+		try {
+			CodeSource source = Pre_Processor.class.getProtectionDomain().getCodeSource();
+			if (source != null && source.getLocation() != null) {
+				File parent = new File(source.getLocation().toURI()).getAbsoluteFile().getParentFile();
+				if (parent != null && new File(parent.getParentFile(), "DAG_Pre_Processor").isDirectory()) {
+					return parent.getParentFile();
+				}
+			}
+		} catch (URISyntaxException e) {
+			// fall back to the working directory
+		} catch (IllegalArgumentException e) {
+			// fall back to the working directory
+		}
+		return new File(System.getProperty("user.dir"));
+	}
+
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * Batch Pre-Processor
+ * 
+ * Reads a manifest with one conversion per row and runs all of them in a
+ * single JVM on a work-stealing pool, reporting the outcome of each row
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+public class Batch_Pre_Processor {
+
+	private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+	private static int threads = CORES;
+	private static int inFlight = 2 * CORES;
+	private static int pnmlInFlight = Math.max(1, CORES / 2);
+
+	private static OutputCache cache;
+
+	private static final AtomicInteger succeeded = new AtomicInteger();
+	private static final AtomicInteger failed = new AtomicInteger();
+
+	public static void main(String argv[]) {
+		if (argv.length < 1) {
+			help();
+		}
+
+		File manifest = null;
+		File cacheDir = null;
+		long cacheSize = 1024;
+		try {
+			for (int i = 0; i < argv.length; i++) {
+				if (argv[i].equals("--threads") && i + 1 < argv.length) {
+					threads = Integer.parseInt(argv[++i]);
+				} else if (argv[i].equals("--in-flight") && i + 1 < argv.length) {
+					inFlight = Integer.parseInt(argv[++i]);
+				} else if (argv[i].equals("--pnml-in-flight") && i + 1 < argv.length) {
+					pnmlInFlight = Integer.parseInt(argv[++i]);
+				} else if (argv[i].equals("--cache") && i + 1 < argv.length) {
+					cacheDir = new File(argv[++i]);
+				} else if (argv[i].equals("--cache-size") && i + 1 < argv.length) {
+					cacheSize = Long.parseLong(argv[++i]);
+				} else if (manifest == null && !argv[i].startsWith("--")) {
+					manifest = new File(argv[i]);
+				} else {
+					help();
+				}
+			}
+		} catch (NumberFormatException e) {
+			help();
+		}
+		if (manifest == null || threads < 1 || inFlight < 1 || pnmlInFlight < 1) {
+			help();
+		}
+
+		PrintStream out = System.out;
+		// keep the report stream clean of anything the converters print
+		System.setOut(System.err);
+		try {
+			if (cacheDir != null) {
+				cache = new OutputCache(cacheDir, cacheSize * 1024 * 1024);
+			}
+			long start = System.nanoTime();
+			run(manifest, out);
+			System.err.println(succeeded.get() + " succeeded, " + failed.get() + " failed in "
+					+ Conversions.millis(System.nanoTime() - start));
+			if (cache != null) {
+				System.err.println("cache " + cache.summary());
+			}
+			((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+		} catch (Exception e) {
+			((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.exit(failed.get() > 0 ? 2 : 0);
+	}
+
+	private static void help() {
+		System.err.println("Usage: Batch_Pre_Processor [--threads n] [--in-flight n] [--pnml-in-flight n] [--cache dir]"
+				+ " [--cache-size mb] [manifestfilename]");
+		System.err.println();
+		System.err.println("Manifest rows, one per line:");
+		System.err.println("  dag [jsonfilename] [jsimgfilename]");
+		System.err.println("  mrt [xmlfilename] [jsimgfilename]");
+		System.err.println("  gspn [pnmlfilename] [jsimgfilename] [idxfilename]");
+		System.err.println("  gspn-stream [pnmlfilename] [jsimgfilename] [idxfilename]");
+		System.err.println("  gspn-reduced [pnmlfilename] [jsimgfilename] [idxfilename]");
+		System.err.println("  swn [pnmlfilename] [jsimgfilename] [idxfilename]");
+		System.err.println("  swn-HadoopCap [pnmlfilename] [jsimgfilename]");
+		System.err.println("  swn-HadoopCap-approx [pnmlfilename] [jsimgfilename] (approximate when colours merge)");
+		System.err.println("  patch [jsimgfilename] [deltafilename] [jsimgfilename]");
+		System.exit(0);
+	}
+
+	/**
+	 * Rows are submitted while the manifest is read, but no more than
+	 * inFlight rows (pnmlInFlight of them PNML rows) are pending at any time,
+	 * so that neither the queue nor the PNML documents loaded by the
+	 * framework can exhaust the heap.
+	 */
+	private static void run(File manifest, final PrintStream out) throws IOException, InterruptedException {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		final Semaphore pending = new Semaphore(inFlight);
+		final Semaphore pendingPNML = new Semaphore(pnmlInFlight);
+		BufferedReader reader = new BufferedReader(new FileReader(manifest));
+		try {
+			int row = 0;
+			String line = reader.readLine();
+			while (line != null) {
+				row++;
+				final List<String> request = Tokenizer.tokenize(line);
+				if (!request.isEmpty() && !request.get(0).startsWith("#")) {
+					final int thisRow = row;
+					final String tool = request.get(0);
+					final boolean isPNML = Conversions.isPNML(tool);
+					if (isPNML) {
+						pendingPNML.acquire();
+					}
+					pending.acquire();
+					pool.execute(new Runnable() {
+						public void run() {
+							try {
+								convert(thisRow, tool, request.subList(1, request.size()), out);
+							} finally {
+								pending.release();
+								if (isPNML) {
+									pendingPNML.release();
+								}
+							}
+						}
+					});
+				}
+				line = reader.readLine();
+			}
+		} finally {
+			reader.close();
+			pool.shutdown();
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private static void convert(int row, String tool, List<String> args, PrintStream out) {
+		long start = System.nanoTime();
+		String report;
+		try {
+			Conversions.convert(tool, args, cache);
+			succeeded.incrementAndGet();
+			report = row + "\tOK\t" + Conversions.millis(System.nanoTime() - start) + "\t"
+					+ Conversions.output(tool, args);
+		} catch (Throwable e) {
+			failed.incrementAndGet();
+			report = row + "\tERROR\t" + Conversions.millis(System.nanoTime() - start) + "\t"
+					+ String.valueOf(e).replace('\n', ' ');
+		}
+		synchronized (out) {
+			out.println(report);
+		}
+	}
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Conversions
+ * 
+ * Dispatches a conversion request, given as a tool name followed by its
+ * arguments, to the corresponding pre-processor. Shared by the server and
+ * the batch pre-processor
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+class Conversions {
+
+	private Conversions() {
+	}
+
+	static boolean isValid(String tool, int args) {
+		if (tool.equals("dag") || tool.equals("mrt") || tool.equals("swn-HadoopCap")
+				|| tool.equals("swn-HadoopCap-approx")) {
+			return args == 2;
+		} else if (tool.equals("gspn") || tool.equals("gspn-stream") || tool.equals("gspn-reduced")
+				|| tool.equals("swn")) {
+			return args == 2 || args == 3;
+		} else if (tool.equals("patch")) {
+			return args == 3;
+		}
+		return false;
+	}
+
+	static boolean isPNML(String tool) {
+		return tool.equals("gspn") || tool.equals("gspn-stream") || tool.equals("gspn-reduced")
+				|| tool.equals("swn") || tool.equals("swn-HadoopCap") || tool.equals("swn-HadoopCap-approx");
+	}
+
+	/**
+	 * Returns the file written by a valid request.
+	 */
+	static String output(String tool, List<String> args) {
+		return tool.equals("patch") ? args.get(2) : args.get(1);
+	}
+
+	/**
+	 * Runs a request through the cache, if any. Returns true if the output
+	 * was served from the cache.
+	 */
+	static boolean convert(String tool, List<String> args, OutputCache cache) throws Exception {
+		if (cache == null) {
+			convert(tool, args);
+			return false;
+		}
+		if (!isValid(tool, args.size())) {
+			throw new IllegalArgumentException("Unknown request: " + tool + " with " + args.size() + " argument(s)");
+		}
+		return cache.convert(tool, args);
+	}
+
+	static void convert(String tool, List<String> args) throws Exception {
+		if (!isValid(tool, args.size())) {
+			throw new IllegalArgumentException("Unknown request: " + tool + " with " + args.size() + " argument(s)");
+		}
+		File input = new File(args.get(0));
+		File output = new File(output(tool, args));
+		if (tool.equals("dag")) {
+			DAG_Pre_Processor.convert(input, output);
+		} else if (tool.equals("mrt")) {
+			MRT_Pre_Processor.convert(input, output);
+		} else if (tool.equals("patch")) {
+			Patch_Pre_Processor.convert(input, new File(args.get(1)), output);
+		} else {
+			File index = (args.size() == 3) ? new File(args.get(2)) : null;
+			PNML_Pre_Processor.convert(tool, input, output, index);
+		}
+	}
+
+	static String millis(long nanos) {
+		return String.format("%.3fms", nanos / 1e6);
+	}
+
+}
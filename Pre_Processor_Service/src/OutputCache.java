@@ -0,0 +1,471 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Output Cache
+ *
+ * Keeps the JSIMG files generated by the pre-processors in a folder, under
+ * the SHA-256 hash of everything the output depends on: the classes of the
+ * pre-processor, the request, and the contents of the input, index, delta
+ * and template files, with line endings and byte order marks normalised. A
+ * repeated request is served from the folder, by a hard link when the
+ * cached file has the same name as the requested one and by a copy with the
+ * archive renamed otherwise. When the folder grows beyond its maximum size
+ * the least recently used files are removed
+ *
+ * Compressed inputs are hashed decompressed. A compressed output cannot be
+ * renamed in place, so its name and compression are part of its hash
+ *
+ * The conversions made through the cache write their archives with a fixed
+ * timestamp, so that a cached file is byte for byte the file a new
+ * conversion would write; other archives written by the process keep the
+ * current time
+ *
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ *
+ */
+class OutputCache {
+
+	private static final String SUFFIX = ".jsimg";
+	private static final int HEADER_LINES = 3;
+
+	private final File dir;
+	private final long maxSize;
+	private final Map<String, byte[]> versions = new HashMap<String, byte[]>();
+	private long size;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong tempCounter = new AtomicLong();
+
+	OutputCache(File dir, long maxSize) throws IOException {
+		this.dir = dir;
+		this.maxSize = maxSize;
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Cannot create cache folder " + dir);
+		}
+		for (File f : listFiles()) {
+			size += f.length();
+		}
+		File[] temps = dir.listFiles();
+		if (temps != null) {
+			for (File f : temps) {
+				if (f.getName().endsWith(".tmp")) {
+					f.delete();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Serves a valid request from the cache, or converts it and caches the
+	 * output. Returns true on a hit.
+	 */
+	boolean convert(String tool, List<String> args) throws Exception {
+		File output = new File(Conversions.output(tool, args));
+		String key = getKey(tool, args, output);
+		File entry = new File(dir, key + SUFFIX);
+		if (entry.isFile()) {
+			try {
+				serve(entry, output);
+				entry.setLastModified(System.currentTimeMillis());
+				hits.incrementAndGet();
+				return true;
+			} catch (NoSuchFileException e) {
+				// evicted meanwhile
+			}
+		}
+		misses.incrementAndGet();
+		JsimgWriter.setFixedTimestamp(new Date(0));
+		try {
+			Conversions.convert(tool, args);
+		} finally {
+			JsimgWriter.setFixedTimestamp(null);
+		}
+		store(output, entry);
+		return false;
+	}
+
+	String summary() {
+		synchronized (this) {
+			return "hits=" + hits.get() + " misses=" + misses.get() + " evictions=" + evictions.get() + " size="
+					+ size + " maxSize=" + maxSize;
+		}
+	}
+
+	private String getKey(String tool, List<String> args, File output) throws IOException {
+		MessageDigest digest = newDigest();
+		digest.update(getVersion(tool));
+		update(digest, "request", tool);
+		if (Compression.isCompressed(output)) {
+			update(digest, "output", Compression.getName(output) + Compression.getExtension(output));
+		}
+		update(digest, "input", new File(args.get(0)));
+		if (tool.equals("gspn") || tool.equals("gspn-stream") || tool.equals("gspn-reduced")
+				|| tool.equals("swn")) {
+			if (args.size() == 3) {
+				update(digest, "index", new File(args.get(2)));
+			}
+		} else if (tool.equals("swn-HadoopCap") || tool.equals("swn-HadoopCap-approx")) {
+			update(digest, "template", TemplateCache.getFile("HadoopCap.jsimg"));
+		} else if (tool.equals("patch")) {
+			update(digest, "delta", new File(args.get(1)));
+		}
+		StringBuilder key = new StringBuilder();
+		for (byte b : digest.digest()) {
+			key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * Returns the hash of the classes that produce the output of a tool, so
+	 * that a rebuilt tool does not serve the outputs of the old one.
+	 */
+	private byte[] getVersion(String tool) throws IOException {
+		synchronized (versions) {
+			byte[] version = versions.get(tool);
+			if (version == null) {
+				String[] classes;
+				if (tool.equals("dag")) {
+					classes = new String[] { "DAG_Pre_Processor", "DagConverter" };
+				} else if (tool.equals("mrt")) {
+					classes = new String[] { "MRT_Pre_Processor", "MrtConverter" };
+				} else if (tool.equals("patch")) {
+					classes = new String[] { "Patch_Pre_Processor", "JsimgPatcher", "Tokenizer" };
+				} else {
+					classes = new String[] { "PNML_Pre_Processor", "PnmlConverter", "PnmlRegistry", "PnmlNet", "GspnNet",
+							"GspnReducer", "SwnNet", "SwnUnfolder", "TemplateCache" };
+				}
+				MessageDigest digest = newDigest();
+				for (String name : classes) {
+					updateClass(digest, name);
+				}
+				updateClass(digest, "JsimgWriter");
+				updateClass(digest, "jmt.gui.common.xml.XMLWriter");
+				version = digest.digest();
+				versions.put(tool, version);
+			}
+			return version;
+		}
+	}
+
+	private static void updateClass(MessageDigest digest, String name) throws IOException {
+		InputStream in = OutputCache.class.getResourceAsStream("/" + name.replace('.', '/') + ".class");
+		if (in == null) {
+			update(digest, "class", name);
+			return;
+		}
+		try {
+			byte[] buffer = new byte[8192];
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, n);
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void update(MessageDigest digest, String label, String value) {
+		byte[] bytes = (label + "=" + value).getBytes(StandardCharsets.UTF_8);
+		update(digest, bytes.length);
+		digest.update(bytes);
+	}
+
+	/**
+	 * Adds the contents of a file, with a leading UTF-8 byte order mark
+	 * dropped and CRLF and CR line endings read as LF.
+	 */
+	private static void update(MessageDigest digest, String label, File file) throws IOException {
+		update(digest, label, "file");
+		InputStream in = Compression.openInput(file);
+		try {
+			byte[] buffer = new byte[8192];
+			byte[] normalised = new byte[8192];
+			long count = 0;
+			boolean first = true;
+			boolean cr = false;
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				int start = 0;
+				if (first && n >= 3 && (buffer[0] & 0xff) == 0xef && (buffer[1] & 0xff) == 0xbb
+						&& (buffer[2] & 0xff) == 0xbf) {
+					start = 3;
+				}
+				first = false;
+				int m = 0;
+				for (int i = start; i < n; i++) {
+					byte b = buffer[i];
+					if (b == '\n' && cr) {
+						cr = false;
+						continue;
+					}
+					cr = (b == '\r');
+					normalised[m++] = cr ? (byte) '\n' : b;
+				}
+				digest.update(normalised, 0, m);
+				count += m;
+			}
+			update(digest, count);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void update(MessageDigest digest, long value) {
+		for (int i = 7; i >= 0; i--) {
+			digest.update((byte) (value >>> (8 * i)));
+		}
+	}
+
+	private static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void serve(File entry, File output) throws IOException {
+		if (Compression.isCompressed(output)) {
+			serveCompressed(entry, output);
+			return;
+		}
+		byte[] header = readHeader(entry);
+		String text = new String(header, "ISO-8859-1");
+		String name = getArchiveName(text);
+		Files.deleteIfExists(output.toPath());
+		if (name.equals(output.getName())) {
+			try {
+				Files.createLink(output.toPath(), entry.toPath());
+				return;
+			} catch (NoSuchFileException e) {
+				throw e;
+			} catch (UnsupportedOperationException e) {
+				// no hard links, copied below
+			} catch (IOException e) {
+				// no hard links across file systems, copied below
+			}
+		}
+
+		String quoted = "name=\"" + escape(name) + "\"";
+		byte[] renamed = text.replace(quoted, "name=\"" + escape(output.getName()) + "\"").getBytes("ISO-8859-1");
+		FileChannel in = FileChannel.open(entry.toPath(), StandardOpenOption.READ);
+		try {
+			FileChannel out = FileChannel.open(output.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			try {
+				ByteBuffer buffer = ByteBuffer.wrap(renamed);
+				while (buffer.hasRemaining()) {
+					out.write(buffer);
+				}
+				long position = header.length;
+				long length = in.size();
+				while (position < length) {
+					position += in.transferTo(position, length - position, out);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Serves a compressed file, which cannot be renamed in place. Its key
+	 * includes the name of the archive, so the cached file always has the
+	 * requested name and is linked or copied as it is.
+	 */
+	private void serveCompressed(File entry, File output) throws IOException {
+		Files.deleteIfExists(output.toPath());
+		try {
+			Files.createLink(output.toPath(), entry.toPath());
+			return;
+		} catch (NoSuchFileException e) {
+			throw e;
+		} catch (UnsupportedOperationException e) {
+			// no hard links, copied below
+		} catch (IOException e) {
+			// no hard links across file systems, copied below
+		}
+		Files.copy(entry.toPath(), output.toPath());
+	}
+
+	/**
+	 * Returns the prolog and the archive and sim start tags of a cached file,
+	 * the only lines that contain the name of the archive.
+	 */
+	private static byte[] readHeader(File entry) throws IOException {
+		InputStream in = new BufferedInputStream(Files.newInputStream(entry.toPath()));
+		try {
+			byte[] header = new byte[4096];
+			int length = 0;
+			int lines = 0;
+			int b;
+			while (lines < HEADER_LINES && (b = in.read()) >= 0) {
+				if (length == header.length) {
+					header = Arrays.copyOf(header, length * 2);
+				}
+				header[length++] = (byte) b;
+				if (b == '\n') {
+					lines++;
+				}
+			}
+			return Arrays.copyOf(header, length);
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String getArchiveName(String header) throws IOException {
+		int start = header.indexOf("<archive ");
+		start = (start < 0) ? -1 : header.indexOf(" name=\"", start);
+		if (start < 0) {
+			throw new IOException("Not a JSIMG archive");
+		}
+		start += " name=\"".length();
+		return unescape(header.substring(start, header.indexOf('"', start)));
+	}
+
+	private static String escape(String text) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '&') {
+				sb.append("&amp;");
+			} else if (c == '<') {
+				sb.append("&lt;");
+			} else if (c == '>') {
+				sb.append("&gt;");
+			} else if (c == '"') {
+				sb.append("&quot;");
+			} else if (c > 0xff) {
+				sb.append("&#").append(text.codePointAt(i)).append(';');
+				if (Character.isHighSurrogate(c)) {
+					i++;
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	private static String unescape(String text) {
+		return text.replace("&quot;", "\"").replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+	}
+
+	/**
+	 * Copies a new output into the cache. The copy is written to a temporary
+	 * file first, so that concurrent requests only ever see complete files.
+	 */
+	private void store(File output, File entry) throws IOException {
+		Path temp = new File(dir, entry.getName() + "." + tempCounter.incrementAndGet() + "."
+				+ Thread.currentThread().getId() + ".tmp").toPath();
+		try {
+			Files.copy(output.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+			long previous = entry.length();
+			try {
+				Files.move(temp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, entry.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			synchronized (this) {
+				size += entry.length() - previous;
+				if (size > maxSize) {
+					evict();
+				}
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Removes the least recently used files until the cache is back to 90%
+	 * of its maximum size, so that eviction does not run on every miss.
+	 */
+	private void evict() {
+		File[] files = listFiles();
+		final long[] used = new long[files.length];
+		Integer[] order = new Integer[files.length];
+		for (int i = 0; i < files.length; i++) {
+			used[i] = files[i].lastModified();
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Long.compare(used[a.intValue()], used[b.intValue()]);
+			}
+		});
+		size = 0;
+		for (File f : files) {
+			size += f.length();
+		}
+		long target = maxSize / 10 * 9;
+		for (int i = 0; i < order.length && size > target; i++) {
+			File f = files[order[i].intValue()];
+			long length = f.length();
+			if (f.delete()) {
+				size -= length;
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private File[] listFiles() {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return new File[0];
+		}
+		int n = 0;
+		for (File f : files) {
+			if (f.getName().endsWith(SUFFIX)) {
+				files[n++] = f;
+			}
+		}
+		return Arrays.copyOf(files, n);
+	}
+
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright (C) 2017, DICE H2020 WP3 Team
+
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.LoggerContext;
+
+/**
+ * Pre-Processor Server
+ * 
+ * Keeps the DAG, MRT and PNML pre-processors loaded in a single JVM and
+ * serves conversion requests read line by line from the standard input or
+ * from a local socket, so that JMT, the PNML framework and logback are
+ * initialised only once
+ * 
+ * Author: DICE H2020 WP3 Team
+ * Oct/2026
+ * 
+ */
+public class Pre_Processor_Server {
+
+	private static final int SAMPLES = 10000;
+
+	private static final Map<String, LatencyStats> stats = new TreeMap<String, LatencyStats>();
+
+	private static volatile boolean running = true;
+
+	private static OutputCache cache;
+
+	private static class LatencyStats {
+
+		public long count;
+		public long failures;
+		public long total;
+		public long min = Long.MAX_VALUE;
+		public long max;
+		public long[] samples = new long[SAMPLES];
+
+		public synchronized void record(long nanos, boolean failed) {
+			samples[(int) (count % SAMPLES)] = nanos;
+			count++;
+			if (failed) {
+				failures++;
+			}
+			total += nanos;
+			min = Math.min(min, nanos);
+			max = Math.max(max, nanos);
+		}
+
+		public synchronized String summary() {
+			int n = (int) Math.min(count, SAMPLES);
+			long[] sorted = Arrays.copyOf(samples, n);
+			Arrays.sort(sorted);
+			return "count=" + count + " failures=" + failures + " mean=" + Conversions.millis(total / Math.max(count, 1))
+					+ " min=" + Conversions.millis(min) + " p50=" + Conversions.millis(percentile(sorted, 0.50))
+					+ " p95=" + Conversions.millis(percentile(sorted, 0.95)) + " p99="
+					+ Conversions.millis(percentile(sorted, 0.99)) + " max=" + Conversions.millis(max);
+		}
+
+		private static long percentile(long[] sorted, double p) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+		}
+
+	}
+
+	public static void main(String argv[]) {
+		int port = -1;
+		File cacheDir = null;
+		long cacheSize = 1024;
+		try {
+			for (int i = 0; i < argv.length; i++) {
+				if (argv[i].equals("--port") && i + 1 < argv.length) {
+					port = Integer.parseInt(argv[++i]);
+				} else if (argv[i].equals("--cache") && i + 1 < argv.length) {
+					cacheDir = new File(argv[++i]);
+				} else if (argv[i].equals("--cache-size") && i + 1 < argv.length) {
+					cacheSize = Long.parseLong(argv[++i]);
+				} else {
+					help();
+				}
+			}
+		} catch (NumberFormatException e) {
+			help();
+		}
+
+		try {
+			if (cacheDir != null) {
+				cache = new OutputCache(cacheDir, cacheSize * 1024 * 1024);
+			}
+			if (port >= 0) {
+				serveSocket(port);
+			} else {
+				PrintStream out = System.out;
+				// keep the protocol stream clean of anything the converters print
+				System.setOut(System.err);
+				serve(new BufferedReader(new InputStreamReader(System.in)), out);
+			}
+			((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+		} catch (Exception e) {
+			((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	private static void help() {
+		System.err.println("Usage 1: Pre_Processor_Server [--cache dir] [--cache-size mb]");
+		System.err.println("Usage 2: Pre_Processor_Server --port [port] [--cache dir] [--cache-size mb]");
+		System.err.println();
+		System.err.println("Requests, one per line:");
+		System.err.println("  dag [jsonfilename] [jsimgfilename]");
+		System.err.println("  mrt [xmlfilename] [jsimgfilename]");
+		System.err.println("  gspn [pnmlfilename] [jsimgfilename] [idxfilename]");
+		System.err.println("  gspn-stream [pnmlfilename] [jsimgfilename] [idxfilename]");
+		System.err.println("  gspn-reduced [pnmlfilename] [jsimgfilename] [idxfilename]");
+		System.err.println("  swn [pnmlfilename] [jsimgfilename] [idxfilename]");
+		System.err.println("  swn-HadoopCap [pnmlfilename] [jsimgfilename]");
+		System.err.println("  swn-HadoopCap-approx [pnmlfilename] [jsimgfilename] (approximate when colours merge)");
+		System.err.println("  patch [jsimgfilename] [deltafilename] [jsimgfilename]");
+		System.err.println("  stats");
+		System.err.println("  quit");
+		System.err.println("  shutdown");
+		System.exit(0);
+	}
+
+	private static void serveSocket(int port) throws IOException {
+		final ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		ExecutorService pool = Executors.newCachedThreadPool();
+		System.err.println("Listening on " + serverSocket.getLocalSocketAddress());
+		try {
+			while (running) {
+				final Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException e) {
+					if (!running) {
+						break;
+					}
+					throw e;
+				}
+				pool.execute(new Runnable() {
+					public void run() {
+						try {
+							serve(new BufferedReader(new InputStreamReader(socket.getInputStream())),
+									new PrintStream(socket.getOutputStream(), true));
+							if (!running) {
+								serverSocket.close();
+							}
+						} catch (IOException e) {
+							e.printStackTrace();
+						} finally {
+							try {
+								socket.close();
+							} catch (IOException e) {
+								e.printStackTrace();
+							}
+						}
+					}
+				});
+			}
+		} finally {
+			pool.shutdown();
+			serverSocket.close();
+		}
+	}
+
+	private static void serve(BufferedReader in, PrintStream out) throws IOException {
+		String line = in.readLine();
+		while (line != null) {
+			List<String> request = Tokenizer.tokenize(line);
+			if (!request.isEmpty()) {
+				String command = request.get(0);
+				if (command.equals("quit")) {
+					out.println("OK");
+					break;
+				} else if (command.equals("shutdown")) {
+					running = false;
+					out.println("OK");
+					break;
+				} else if (command.equals("stats")) {
+					synchronized (stats) {
+						for (Map.Entry<String, LatencyStats> e : stats.entrySet()) {
+							out.println(e.getKey() + " " + e.getValue().summary());
+						}
+					}
+					if (cache != null) {
+						out.println("cache " + cache.summary());
+					}
+					out.println("OK");
+				} else {
+					out.println(handle(command, request.subList(1, request.size())));
+				}
+				out.flush();
+			}
+			line = in.readLine();
+		}
+	}
+
+	private static String handle(String command, List<String> args) {
+		long start = System.nanoTime();
+		String response;
+		boolean failed = false;
+		if (!Conversions.isValid(command, args.size())) {
+			return "ERROR Unknown request: " + command + " with " + args.size() + " argument(s)";
+		}
+		try {
+			boolean hit = Conversions.convert(command, args, cache);
+			response = "OK " + Conversions.millis(System.nanoTime() - start) + (hit ? " cached" : "");
+		} catch (Exception e) {
+			failed = true;
+			response = "ERROR " + String.valueOf(e).replace('\n', ' ');
+		}
+		getStats(command).record(System.nanoTime() - start, failed);
+		return response;
+	}
+
+	private static LatencyStats getStats(String command) {
+		synchronized (stats) {
+			LatencyStats s = stats.get(command);
+			if (s == null) {
+				s = new LatencyStats();
+				stats.put(command, s);
+			}
+			return s;
+		}
+	}
+
+}